@@ -26,6 +26,28 @@ if ! command -v adb >/dev/null 2>&1; then
   exit 1
 fi
 
+# Пул эмуляторов (MOBILE_EMULATORS > 0): эмуляторы поднимает mobile.base.EmulatorPool из снимка
+# quick boot с уже установленным APK, поэтому подготовка устройства ниже не нужна —
+# только Appium и тесты
+if [ "${MOBILE_EMULATORS:-0}" -gt 0 ]; then
+  echo ""
+  echo "=== Эмуляторы (${MOBILE_EMULATORS}) запустит EmulatorPool, запуск Appium на порту ${APPIUM_PORT} ==="
+  appium -p "${APPIUM_PORT}" --log-level error >/dev/null 2>&1 &
+  APPIUM_PID=$!
+  trap 'kill "${APPIUM_PID}" 2>/dev/null || true' EXIT INT TERM
+  export APPIUM_SERVER_URL="${APPIUM_SERVER_URL:-http://127.0.0.1:${APPIUM_PORT}}"
+  for _ in $(seq 1 60); do
+    if curl -s "http://127.0.0.1:${APPIUM_PORT}/status" >/dev/null 2>&1; then
+      break
+    fi
+    sleep 0.5
+  done
+  (cd "${PROJECT_ROOT}" && mvn -q clean -Dtest=mobile.tests.WikipediaMobileTests test)
+  echo ""
+  echo "=== ✅ Мобильные тесты завершены ==="
+  exit 0
+fi
+
 # Проверка подключенных устройств
 echo ""
 echo "=== Проверка подключенных Android устройств ==="
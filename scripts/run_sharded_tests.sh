@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+set -e
+
+# Запуск набора тестов в нескольких параллельных процессах (шардах).
+# Методы делятся по длительностям прошлых прогонов (common.ShardInterceptor), у каждого шарда
+# свой пул браузеров и своя часть устройств; отчёты сводятся в target/shards/testng-results.xml.
+#
+#   ./scripts/run_sharded_tests.sh [число шардов] [suite.xml]
+
+SHARDS="${1:-${SHARD_TOTAL:-2}}"
+SUITE="${2:-testng.xml}"
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+PROJECT_ROOT="$(cd "${SCRIPT_DIR}/.." && pwd)"
+SHARD_DIR="${PROJECT_ROOT}/target/shards"
+
+if ! command -v mvn >/dev/null 2>&1; then
+  echo "Maven не найден. Установите Maven (maven) перед запуском скрипта."
+  exit 1
+fi
+
+echo "=== Сборка тестов и classpath ==="
+cd "${PROJECT_ROOT}"
+mvn -q test-compile dependency:build-classpath \
+  -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+CLASSPATH="target/test-classes:target/classes:$(cat target/test-classpath.txt)"
+
+rm -rf "${SHARD_DIR}"
+mkdir -p "${SHARD_DIR}"
+
+# Все шарды делят методы по одной копии истории: закончивший шард дописывает history.tsv,
+# и без копии остальные получили бы другое разбиение
+HISTORY_SNAPSHOT="${SHARD_DIR}/durations-snapshot.tsv"
+java -cp "${CLASSPATH}" common.DurationHistory "${HISTORY_SNAPSHOT}"
+
+echo "=== Запуск ${SHARDS} шардов (${SUITE}) ==="
+PIDS=()
+for ((i = 0; i < SHARDS; i++)); do
+  SHARD_INDEX="${i}" SHARD_TOTAL="${SHARDS}" DURATIONS_SNAPSHOT="${HISTORY_SNAPSHOT}" \
+    java -cp "${CLASSPATH}" org.testng.TestNG -d "${SHARD_DIR}/${i}" "${SUITE}" \
+    >"${SHARD_DIR}/shard-${i}.log" 2>&1 &
+  PIDS+=($!)
+  echo "Шард ${i}: PID ${PIDS[$i]}, лог ${SHARD_DIR}/shard-${i}.log"
+done
+
+FAILED=0
+for ((i = 0; i < SHARDS; i++)); do
+  if ! wait "${PIDS[$i]}"; then
+    echo "⚠️  Шард ${i} завершился с ошибкой (см. ${SHARD_DIR}/shard-${i}.log)"
+    FAILED=1
+  fi
+done
+
+echo "=== Сводный отчёт ==="
+java -cp "${CLASSPATH}" common.ShardReportMerger "${SHARD_DIR}" || FAILED=1
+
+exit "${FAILED}"
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import config.TestConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость чтения настроек {@link TestConfig}: каждый геттер заново смотрит переменную окружения,
+ * затем системное свойство и config.properties. Геттеры вызываются в конструкторах Page Object'ов
+ * и при каждом создании драйвера.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigLookupBenchmark {
+
+    /**
+     * Нижняя граница: один {@code System.getenv} без разбора значения.
+     */
+    @Benchmark
+    public String systemGetenv() {
+        return System.getenv("EXPLICIT_WAIT_SECONDS");
+    }
+
+    @Benchmark
+    public String stringSetting() {
+        return TestConfig.getWebBrowser();
+    }
+
+    @Benchmark
+    public int intSetting() {
+        return TestConfig.getExplicitWaitSeconds();
+    }
+
+    @Benchmark
+    public boolean booleanSetting() {
+        return TestConfig.isWebHeadless();
+    }
+
+    @Benchmark
+    public List<String> listSetting() {
+        return TestConfig.getWebProxyBlockHosts();
+    }
+}
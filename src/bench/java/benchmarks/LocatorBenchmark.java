@@ -0,0 +1,88 @@
+package benchmarks;
+
+import mobile.base.ScreenSnapshot;
+import mobile.base.UiCandidate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение локаторов и поиск кандидатов в снимке экрана мобильного приложения: XPath-литералы
+ * {@link UiCandidate#toBy()}, разбор иерархии {@link ScreenSnapshot} и выбор первого
+ * присутствующего кандидата. Иерархия берётся из экранов локальной замены Appium.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocatorBenchmark {
+
+    // Кандидаты в порядке приоритета, как у кнопок пропуска онбординга
+    private static final List<UiCandidate> CANDIDATES = Arrays.asList(
+            UiCandidate.id("org.wikipedia:id/fragment_onboarding_skip_button"),
+            UiCandidate.accessibilityId("Skip"),
+            UiCandidate.text("SKIP"),
+            UiCandidate.textContains("Search Wikipedia"));
+
+    private final UiCandidate apostrophe = UiCandidate.text("Wikipedia's list of lists");
+    private final UiCandidate plain = UiCandidate.textContains("Java");
+
+    private StubDriver driver;
+    private ScreenSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        driver = new StubDriver(readScreen("main"));
+        snapshot = ScreenSnapshot.capture(driver);
+    }
+
+    @Benchmark
+    public By xpathPlain() {
+        return plain.toBy();
+    }
+
+    @Benchmark
+    public By xpathWithApostrophe() {
+        return apostrophe.toBy();
+    }
+
+    @Benchmark
+    public ScreenSnapshot parseSnapshot() {
+        return ScreenSnapshot.capture(driver);
+    }
+
+    @Benchmark
+    public UiCandidate firstPresent() {
+        return snapshot.firstPresent(CANDIDATES);
+    }
+
+    private static String readScreen(String screen) {
+        String resource = "fake-appium/screens/" + screen + ".xml";
+        try (InputStream in = LocatorBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Не найден ресурс " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать экран " + screen, e);
+        }
+    }
+}
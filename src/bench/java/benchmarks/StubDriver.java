@@ -0,0 +1,125 @@
+package benchmarks;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Драйвер-заглушка для бенчмарков: отвечает мгновенно и без сети, поэтому в замерах остаются
+ * только накладные расходы самого фреймворка (ожидания, локаторы, обёртки).
+ * <p>
+ * {@code findElement} находит элемент по любому локатору, кроме {@link #MISSING}.
+ */
+final class StubDriver implements WebDriver {
+
+    static final By MISSING = By.id("missing");
+
+    private static final Timeouts TIMEOUTS = stub(Timeouts.class);
+
+    private final String pageSource;
+    private final WebElement element = stub(WebElement.class);
+    private final Options options = stub(Options.class);
+
+    StubDriver(String pageSource) {
+        this.pageSource = pageSource;
+    }
+
+    @Override
+    public void get(String url) {
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        return "about:blank";
+    }
+
+    @Override
+    public String getTitle() {
+        return "";
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        return MISSING.equals(by) ? Collections.emptyList() : Collections.singletonList(element);
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        if (MISSING.equals(by)) {
+            throw new NoSuchElementException("Нет элемента " + by);
+        }
+        return element;
+    }
+
+    @Override
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void quit() {
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        return Collections.singleton("stub");
+    }
+
+    @Override
+    public String getWindowHandle() {
+        return "stub";
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return stub(TargetLocator.class);
+    }
+
+    @Override
+    public Navigation navigate() {
+        return stub(Navigation.class);
+    }
+
+    @Override
+    public Options manage() {
+        return options;
+    }
+
+    /**
+     * Заглушка интерфейса: методы, возвращающие тот же интерфейс (или вложенные Timeouts), возвращают
+     * заглушку, boolean — true, остальные — null.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(StubDriver.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType.isInstance(proxy)) {
+                        return proxy;
+                    }
+                    if (returnType == Timeouts.class) {
+                        return TIMEOUTS;
+                    }
+                    if (returnType == boolean.class) {
+                        return true;
+                    }
+                    if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import common.StepTimeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена хронометража шагов: {@link StepTimeline} оборачивает каждую команду драйвера и каждый
+ * метод Page Object'а, поэтому его накладные расходы должны оставаться в пределах микросекунды.
+ * Статистика сбрасывается перед каждой итерацией, чтобы итерации мерили одно и то же.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimelineBenchmark {
+
+    @Setup(Level.Iteration)
+    public void resetStatistics() {
+        StepTimeline.reset();
+    }
+
+    @Benchmark
+    public int baseline() {
+        return 42;
+    }
+
+    @Benchmark
+    public int command() {
+        return StepTimeline.command("findElement", () -> 42);
+    }
+
+    @Benchmark
+    public void step() {
+        StepTimeline.step("Page.method", () -> {
+            // пустой шаг: меряется только открытие и закрытие
+        });
+    }
+}
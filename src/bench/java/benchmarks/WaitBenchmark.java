@@ -0,0 +1,67 @@
+package benchmarks;
+
+import common.FastProbe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы ожиданий на драйвере-заглушке: создание {@link WebDriverWait} (делается в
+ * конструкторе каждого Page Object'а), один опрос {@link ExpectedConditions}, полный
+ * {@code until} при сразу выполненном условии и проверка наличия через {@link FastProbe}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaitBenchmark {
+
+    private static final By PRESENT = By.id("submit");
+
+    private final StubDriver driver = new StubDriver("<html/>");
+    private final WebDriverWait wait = new WebDriverWait(driver, 10);
+
+    @Benchmark
+    public WebDriverWait createWait() {
+        return new WebDriverWait(driver, 10);
+    }
+
+    @Benchmark
+    public WebElement conditionApply() {
+        return ExpectedConditions.elementToBeClickable(PRESENT).apply(driver);
+    }
+
+    @Benchmark
+    public WebElement untilSatisfied() {
+        return wait.until(ExpectedConditions.elementToBeClickable(PRESENT));
+    }
+
+    @Benchmark
+    public WebElement createWaitAndUntil() {
+        return new WebDriverWait(driver, 10).until(ExpectedConditions.elementToBeClickable(PRESENT));
+    }
+
+    @Benchmark
+    public boolean probeHit() {
+        return FastProbe.isPresent(driver, PRESENT);
+    }
+
+    @Benchmark
+    public boolean probeMiss() {
+        return FastProbe.isPresent(driver, StubDriver.MISSING);
+    }
+}
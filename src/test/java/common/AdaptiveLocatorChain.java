@@ -0,0 +1,106 @@
+package common;
+
+import config.TestConfig;
+import org.openqa.selenium.By;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Цепочка запасных локаторов, которая запоминает, какой из них сработал.
+ * <p>
+ * Для каждой пары «цепочка + контекст» (например, версия приложения) хранится локатор,
+ * сработавший последним; при следующем поиске он проверяется первым, остальные — в исходном
+ * порядке. Рейтинг сохраняется в {@code locators/ranking.properties} каталога кэша, поэтому
+ * обычный прогон тратит одну попытку вместо последовательного перебора с таймаутами.
+ * <p>
+ * В цепочку кладутся только конкретные локаторы (id, точный xpath). Общие запасные варианты
+ * вроде «первый элемент с текстом» совпадают с чем угодно: запомнившись один раз, они
+ * перекрыли бы конкретные локаторы во всех следующих прогонах, поэтому их проверяют отдельно
+ * после цепочки.
+ */
+public final class AdaptiveLocatorChain {
+
+    private static final PersistentProperties STORE =
+            new PersistentProperties(TestConfig.getCacheDir().resolve("locators").resolve("ranking.properties"));
+    private static final Map<String, String> WINNERS = new ConcurrentHashMap<>();
+    private static volatile boolean loaded;
+
+    private final String name;
+    private final List<By> locators;
+
+    public AdaptiveLocatorChain(String name, By... locators) {
+        this.name = name;
+        this.locators = Collections.unmodifiableList(Arrays.asList(locators));
+    }
+
+    /**
+     * Локатор, который стоит проверить первым в данном контексте.
+     */
+    public By preferred(String context) {
+        return order(context).get(0);
+    }
+
+    /**
+     * Перебирает локаторы, начиная с запомненного, и возвращает первый непустой результат попытки.
+     *
+     * @param context контекст рейтинга, например версия приложения
+     * @param attempt поиск по одному локатору; {@code null} — локатор не подошёл
+     * @return результат первой удачной попытки или {@code null}, если не подошёл ни один локатор
+     */
+    public <T> T resolve(String context, Function<By, T> attempt) {
+        for (By locator : order(context)) {
+            T result = attempt.apply(locator);
+            if (result != null) {
+                remember(context, locator);
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private List<By> order(String context) {
+        String winner = winners().get(key(context));
+        List<By> ordered = new ArrayList<>(locators);
+        if (winner != null) {
+            for (int i = 0; i < ordered.size(); i++) {
+                if (ordered.get(i).toString().equals(winner)) {
+                    ordered.add(0, ordered.remove(i));
+                    break;
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private void remember(String context, By locator) {
+        String key = key(context);
+        String value = locator.toString();
+        if (value.equals(winners().put(key, value))) {
+            return;
+        }
+        STORE.update(properties -> properties.setProperty(key, value));
+        System.out.println("Локаторы: для " + key + " запомнен " + value);
+    }
+
+    private String key(String context) {
+        return name + "@" + context;
+    }
+
+    private static Map<String, String> winners() {
+        if (!loaded) {
+            synchronized (AdaptiveLocatorChain.class) {
+                if (!loaded) {
+                    STORE.load().forEach((key, value) -> WINNERS.putIfAbsent((String) key, (String) value));
+                    loaded = true;
+                }
+            }
+        }
+        return WINNERS;
+    }
+}
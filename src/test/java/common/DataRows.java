@@ -0,0 +1,229 @@
+package common;
+
+import config.TestConfig;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Потоковые наборы данных для {@code @DataProvider}: строки CSV или объекты JSON-массива из
+ * {@code src/test/resources/data} читаются по одной по мере запроса TestNG, файл целиком в память
+ * не загружается. Каждая строка передаётся в тест как {@code Map} «колонка -> значение».
+ * <p>
+ * {@code data.maxRows} ограничивает число строк (например, для быстрого локального прогона).
+ */
+public final class DataRows {
+
+    private static final Json JSON = new Json();
+    private static final String RESOURCE_DIR = "data/";
+
+    private DataRows() {
+    }
+
+    /**
+     * Строки CSV (первая строка — заголовок) как {@code Map<String, String>}. Поддерживаются
+     * значения в кавычках с запятыми, переводами строк и удвоенными кавычками.
+     */
+    public static Iterator<Object[]> csv(String name) {
+        BufferedReader reader = open(name);
+        List<String> header = readCsvRecord(reader, name);
+        if (header == null) {
+            close(reader, name);
+            throw new IllegalStateException("Пустой набор данных " + name);
+        }
+        return limit(new RowIterator(reader, name) {
+            @Override
+            Object readRow() {
+                List<String> values = readCsvRecord(reader, name);
+                if (values == null) {
+                    return null;
+                }
+                if (values.size() != header.size()) {
+                    throw new IllegalStateException("Строка набора " + name + " содержит " + values.size()
+                            + " значений вместо " + header.size() + ": " + values);
+                }
+                Map<String, String> row = new LinkedHashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    row.put(header.get(i), values.get(i));
+                }
+                return row;
+            }
+        });
+    }
+
+    /**
+     * Объекты верхнего JSON-массива как {@code Map<String, Object>} (вложенные массивы — {@code List}).
+     */
+    public static Iterator<Object[]> json(String name) {
+        BufferedReader reader = open(name);
+        JsonInput input = JSON.newInput(reader);
+        input.beginArray();
+        return limit(new RowIterator(reader, name) {
+            @Override
+            Object readRow() {
+                if (!input.hasNext()) {
+                    input.endArray();
+                    return null;
+                }
+                return input.read(Json.MAP_TYPE);
+            }
+        });
+    }
+
+    private static Iterator<Object[]> limit(RowIterator rows) {
+        int maxRows = TestConfig.getDataMaxRows();
+        if (maxRows <= 0) {
+            return rows;
+        }
+        return new Iterator<Object[]>() {
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                if (returned < maxRows && rows.hasNext()) {
+                    return true;
+                }
+                rows.close();
+                return false;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                returned++;
+                return rows.next();
+            }
+        };
+    }
+
+    /**
+     * Одна запись CSV или null в конце файла.
+     */
+    private static List<String> readCsvRecord(Reader reader, String name) {
+        try {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            boolean sawQuote = false;
+            boolean empty = true;
+            int c;
+            while ((c = reader.read()) != -1) {
+                empty = false;
+                if (quoted) {
+                    if (c != '"') {
+                        value.append((char) c);
+                        continue;
+                    }
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    sawQuote = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    value.append((char) c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalStateException("Незакрытая кавычка в наборе данных " + name);
+            }
+            if (empty) {
+                return null;
+            }
+            if (values.isEmpty() && value.length() == 0 && !sawQuote) {
+                // пустая строка
+                return c == -1 ? null : readCsvRecord(reader, name);
+            }
+            values.add(value.toString());
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать набор данных " + name, e);
+        }
+    }
+
+    private static BufferedReader open(String name) {
+        InputStream in = DataRows.class.getClassLoader().getResourceAsStream(RESOURCE_DIR + name);
+        if (in == null) {
+            throw new IllegalStateException("Не найден набор данных " + RESOURCE_DIR + name);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static void close(Reader reader, String name) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть набор данных " + name, e);
+        }
+    }
+
+    /**
+     * Читает строки на шаг вперёд и закрывает файл, как только строки закончились.
+     */
+    private abstract static class RowIterator implements Iterator<Object[]> {
+
+        private final Reader reader;
+        private final String name;
+        private Object next;
+        private boolean closed;
+
+        RowIterator(Reader reader, String name) {
+            this.reader = reader;
+            this.name = name;
+        }
+
+        abstract Object readRow();
+
+        @Override
+        public synchronized boolean hasNext() {
+            if (next == null && !closed) {
+                next = readRow();
+                if (next == null) {
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public synchronized Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object row = next;
+            next = null;
+            return new Object[]{row};
+        }
+
+        synchronized void close() {
+            if (!closed) {
+                closed = true;
+                DataRows.close(reader, name);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package common;
+
+import config.TestConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Журнал длительностей тестовых методов за прошлые прогоны: {@code durations/history.tsv}
+ * в каталоге кэша. Файл только дописывается (под файловой блокировкой, одной записью на прогон),
+ * поэтому параллельные JVM и шарды не портят друг другу строки.
+ * <p>
+ * Строки (через табуляцию):
+ * <ul>
+ *     <li>{@code R, id прогона, время окончания (мс), окружение key=value;...} — заголовок прогона;</li>
+ *     <li>{@code id прогона, время окончания (мс), Класс.метод, длительность (мс), запусков, повторов, падений}
+ *     — по строке на метод. Строки без трёх последних колонок (старый формат) тоже читаются.</li>
+ * </ul>
+ * Шарды одного запуска делят методы по замороженной копии истории ({@code durations.snapshot}),
+ * которую scripts/run_sharded_tests.sh снимает до их старта: {@code java -cp ... common.DurationHistory <файл>}.
+ */
+public final class DurationHistory {
+
+    private static final String RUN_MARKER = "R";
+    /**
+     * Ключи окружения, от которых длительности зависят сильнее всего: прогоны на локальных страницах
+     * и на demoqa, с заменой Appium и на устройстве несравнимы и в одну выборку не попадают.
+     */
+    static final List<String> COMPARABLE_KEYS = Arrays.asList("browser", "profile", "fixtures", "fakeAppium");
+
+    private final Path file;
+
+    public DurationHistory(Path file) {
+        this.file = file;
+    }
+
+    public static DurationHistory local() {
+        return new DurationHistory(TestConfig.getCacheDir().resolve("durations").resolve("history.tsv"));
+    }
+
+    /**
+     * История для деления методов между шардами: замороженная копия, если она задана, иначе локальная.
+     */
+    public static DurationHistory forSharding() {
+        Path snapshot = TestConfig.getDurationsSnapshot();
+        return snapshot != null ? new DurationHistory(snapshot) : local();
+    }
+
+    /**
+     * Копирует локальную историю в {@code args[0]}; истории ещё нет — создаётся пустой файл.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Использование: common.DurationHistory <файл копии>");
+        }
+        local().snapshot(Paths.get(args[0]));
+    }
+
+    /**
+     * Копия истории на текущий момент. Копируется под той же блокировкой, что и дописывание,
+     * поэтому в копию не попадает недописанный прогон.
+     */
+    public void snapshot(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        if (!Files.isRegularFile(file)) {
+            Files.write(target, new byte[0]);
+            return;
+        }
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".part");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                lock.release();
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("История длительностей " + file + " скопирована в " + target);
+    }
+
+    /**
+     * Дописывает результаты одного прогона.
+     */
+    public void append(String runId, long finishedAt, String environment, Map<String, Sample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        lines.append(RUN_MARKER).append('\t').append(runId).append('\t').append(finishedAt)
+                .append('\t').append(environment.replace('\t', ' ').replace('\n', ' ')).append('\n');
+        samples.forEach((method, sample) -> lines.append(runId).append('\t').append(finishedAt)
+                .append('\t').append(method).append('\t').append(sample.millis)
+                .append('\t').append(sample.invocations).append('\t').append(sample.retries)
+                .append('\t').append(sample.failures).append('\n'));
+        synchronized (DurationHistory.class) {
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    FileLock lock = channel.lock();
+                    try {
+                        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось дописать историю длительностей " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Последние {@code window} результатов каждого метода, от старых к новым, только из прогонов,
+     * окружение которых совпадает с {@code environment} по {@link #COMPARABLE_KEYS}. Прогоны без
+     * заголовка окружения в выборку не попадают. {@code environment == null} — все прогоны.
+     */
+    public Map<String, List<Sample>> recent(int window, String environment) {
+        Map<String, Deque<Sample>> recent = new HashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyMap();
+        }
+        String wanted = environment != null ? comparable(environment) : null;
+        Map<String, Boolean> runMatches = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (RUN_MARKER.equals(fields[0])) {
+                    if (fields.length >= 4) {
+                        runMatches.put(fields[1], wanted == null || wanted.equals(comparable(fields[3])));
+                    }
+                    continue;
+                }
+                if (fields.length < 4 || (wanted != null && !runMatches.getOrDefault(fields[0], false))) {
+                    continue;
+                }
+                Sample sample;
+                try {
+                    sample = new Sample(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[3]),
+                            fields.length > 4 ? Integer.parseInt(fields[4]) : 1,
+                            fields.length > 5 ? Integer.parseInt(fields[5]) : 0,
+                            fields.length > 6 ? Integer.parseInt(fields[6]) : 0);
+                } catch (NumberFormatException e) {
+                    // строка, дописанная не до конца при аварийном завершении
+                    continue;
+                }
+                Deque<Sample> samples = recent.computeIfAbsent(fields[2], key -> new ArrayDeque<>());
+                samples.addLast(sample);
+                if (samples.size() > window) {
+                    samples.removeFirst();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Не удалось прочитать историю длительностей " + file + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+        Map<String, List<Sample>> result = new HashMap<>();
+        recent.forEach((method, samples) -> result.put(method, new ArrayList<>(samples)));
+        return result;
+    }
+
+    /**
+     * Медиана последних {@code window} длительностей каждого метода в окружении {@code environment}
+     * (см. {@link #recent}) — оценка для балансировки шардов.
+     */
+    public Map<String, Long> medians(int window, String environment) {
+        Map<String, Long> medians = new HashMap<>();
+        recent(window, environment).forEach((method, samples) -> {
+            List<Long> sorted = new ArrayList<>();
+            for (Sample sample : samples) {
+                sorted.add(sample.millis);
+            }
+            Collections.sort(sorted);
+            medians.put(method, sorted.get(sorted.size() / 2));
+        });
+        return medians;
+    }
+
+    /**
+     * Значения {@link #COMPARABLE_KEYS} из строки окружения {@code key=value;...}; отсутствующий ключ — пусто.
+     */
+    static String comparable(String environment) {
+        Map<String, String> values = new HashMap<>();
+        for (String pair : environment.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                values.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        for (String name : COMPARABLE_KEYS) {
+            key.append(name).append('=').append(values.getOrDefault(name, "")).append(';');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Результат метода за один прогон: суммарная длительность всех запусков (строк данных и повторов).
+     */
+    public static final class Sample {
+
+        public final String runId;
+        public final long finishedAt;
+        public final long millis;
+        public final int invocations;
+        public final int retries;
+        public final int failures;
+
+        public Sample(String runId, long finishedAt, long millis, int invocations, int retries, int failures) {
+            this.runId = runId;
+            this.finishedAt = finishedAt;
+            this.millis = millis;
+            this.invocations = invocations;
+            this.retries = retries;
+            this.failures = failures;
+        }
+
+        /**
+         * Средняя длительность одного запуска — не зависит от числа строк данных в прогоне.
+         */
+        public long millisPerInvocation() {
+            return millis / Math.max(1, invocations);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package common;
+
+import config.TestConfig;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Суммирует длительность каждого тестового метода за прогон (все строки данных и повторы),
+ * число запусков, повторов и падений и в конце прогона дописывает их вместе с описанием
+ * окружения в {@link DurationHistory}. Затем печатает методы, заметно замедлившиеся по
+ * сравнению с прошлыми прогонами ({@link DurationReport}).
+ * Подключается через {@code META-INF/services}.
+ */
+public class DurationListener implements ITestListener, ISuiteListener {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result, false);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result, true);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        // Тест, пропущенный до запуска (упала конфигурация), ничего не длился и оценку не должен занижать
+        if (result.getEndMillis() > result.getStartMillis()) {
+            record(result, false);
+        }
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        record(result, true);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        String runId = UUID.randomUUID().toString();
+        long finishedAt = System.currentTimeMillis();
+        Map<String, DurationHistory.Sample> samples = new TreeMap<>();
+        counters.forEach((method, counter) -> samples.put(method, new DurationHistory.Sample(runId, finishedAt,
+                counter.millis.get(), counter.invocations.get(), counter.retries.get(), counter.failures.get())));
+        counters.clear();
+        if (samples.isEmpty()) {
+            return;
+        }
+        DurationHistory history = DurationHistory.local();
+        history.append(runId, finishedAt, environment(), samples);
+        DurationReport.printRegressions(history, samples.keySet());
+    }
+
+    static String methodKey(Class<?> testClass, String methodName) {
+        return testClass.getName() + "." + methodName;
+    }
+
+    /**
+     * Окружение прогона, от которого зависят длительности: браузер и профиль, источник страниц,
+     * устройства, шард, JVM и машина.
+     */
+    static String environment() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            host = System.getenv("COMPUTERNAME");
+        }
+        return "browser=" + TestConfig.getWebBrowser()
+                + ";profile=" + TestConfig.getWebProfile()
+                + ";headless=" + TestConfig.isWebHeadless()
+                + ";fixtures=" + TestConfig.isWebFixtures()
+                + ";proxy=" + TestConfig.isWebProxy()
+                + ";fakeAppium=" + TestConfig.isMobileFakeAppium()
+                + ";shard=" + TestConfig.getShardIndex() + "/" + TestConfig.getShardTotal()
+                + ";java=" + System.getProperty("java.version")
+                + ";os=" + System.getProperty("os.name") + " " + System.getProperty("os.arch")
+                + ";cpus=" + Runtime.getRuntime().availableProcessors()
+                + ";host=" + (host == null ? "" : host.trim());
+    }
+
+    private void record(ITestResult result, boolean failed) {
+        if (result.getStartMillis() <= 0 || result.getEndMillis() < result.getStartMillis()) {
+            return;
+        }
+        String method = methodKey(result.getTestClass().getRealClass(), result.getMethod().getMethodName());
+        Counters counter = counters.computeIfAbsent(method, key -> new Counters());
+        counter.millis.addAndGet(result.getEndMillis() - result.getStartMillis());
+        // Попытка, за которой последовал повтор, TestNG помечает пропущенной: это повтор, а не отдельный запуск
+        if (result.wasRetried()) {
+            counter.retries.incrementAndGet();
+            return;
+        }
+        counter.invocations.incrementAndGet();
+        if (failed) {
+            counter.failures.incrementAndGet();
+        }
+    }
+
+    private static final class Counters {
+
+        final AtomicLong millis = new AtomicLong();
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicInteger retries = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+    }
+}
@@ -0,0 +1,147 @@
+package common;
+
+import config.TestConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнение последних прогонов с историей из {@link DurationHistory}: для каждого метода p50 и p95
+ * средней длительности запуска за последние {@code durations.recentRuns} прогонов сравниваются
+ * с предыдущими {@code durations.window} прогонами. Замедлением считается рост p50 или p95 больше чем
+ * на {@code durations.regressionPercent} процентов и не меньше чем на {@code durations.minDeltaMillis}.
+ * Сравниваются только прогоны с тем же браузером, профилем, источником страниц и заменой Appium,
+ * что и у текущего окружения ({@link DurationHistory#COMPARABLE_KEYS}).
+ * <p>
+ * Запуск отчёта по всем методам: {@code java -cp ... common.DurationReport [--fail]}; с {@code --fail}
+ * код выхода 1, если найдены замедления.
+ */
+public final class DurationReport {
+
+    // Меньше прогонов в базе — сравнение не имеет смысла
+    private static final int MIN_BASELINE_RUNS = 3;
+
+    private DurationReport() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println("Окружение: " + DurationHistory.comparable(DurationListener.environment()));
+        List<Row> rows = compare(DurationHistory.local(), null);
+        if (rows.isEmpty()) {
+            System.out.println("История длительностей пуста или слишком коротка (нужно больше "
+                    + (MIN_BASELINE_RUNS + TestConfig.getDurationsRecentRuns() - 1) + " прогонов)");
+            return;
+        }
+        System.out.println(String.format("%-80s %9s %9s %9s %9s %7s", "метод (мс на запуск)",
+                "база p50", "база p95", "сейчас p50", "сейчас p95", "повторы"));
+        int regressions = 0;
+        for (Row row : rows) {
+            System.out.println(row.format());
+            if (row.regressed) {
+                regressions++;
+            }
+        }
+        System.out.println("Замедлилось методов: " + regressions + " из " + rows.size());
+        if (regressions > 0 && args.length > 0 && "--fail".equals(args[0])) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Печатает только замедлившиеся методы из {@code methods} (в конце прогона).
+     */
+    static void printRegressions(DurationHistory history, Collection<String> methods) {
+        List<Row> regressed = new ArrayList<>();
+        for (Row row : compare(history, methods)) {
+            if (row.regressed) {
+                regressed.add(row);
+            }
+        }
+        if (regressed.isEmpty()) {
+            return;
+        }
+        System.out.println("=== Тесты замедлились по сравнению с прошлыми прогонами (мс на запуск) ===");
+        System.out.println(String.format("%-80s %9s %9s %9s %9s %7s", "метод",
+                "база p50", "база p95", "сейчас p50", "сейчас p95", "повторы"));
+        regressed.forEach(row -> System.out.println(row.format()));
+    }
+
+    /**
+     * Строки сравнения для методов с достаточной историей (или для {@code methods}, если задан).
+     */
+    static List<Row> compare(DurationHistory history, Collection<String> methods) {
+        int recentRuns = TestConfig.getDurationsRecentRuns();
+        int window = TestConfig.getDurationsWindow();
+        Map<String, List<DurationHistory.Sample>> samples =
+                new TreeMap<>(history.recent(window + recentRuns, DurationListener.environment()));
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, List<DurationHistory.Sample>> entry : samples.entrySet()) {
+            if (methods != null && !methods.contains(entry.getKey())) {
+                continue;
+            }
+            List<DurationHistory.Sample> all = entry.getValue();
+            int split = all.size() - recentRuns;
+            if (split < MIN_BASELINE_RUNS) {
+                continue;
+            }
+            rows.add(new Row(entry.getKey(), all.subList(0, split), all.subList(split, all.size())));
+        }
+        return rows;
+    }
+
+    static long percentile(List<Long> sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    static final class Row {
+
+        final String method;
+        final long baseP50;
+        final long baseP95;
+        final long recentP50;
+        final long recentP95;
+        final int recentRetries;
+        final boolean regressed;
+
+        Row(String method, List<DurationHistory.Sample> baseline, List<DurationHistory.Sample> recent) {
+            this.method = method;
+            List<Long> base = perInvocation(baseline);
+            List<Long> current = perInvocation(recent);
+            baseP50 = percentile(base, 50);
+            baseP95 = percentile(base, 95);
+            recentP50 = percentile(current, 50);
+            recentP95 = percentile(current, 95);
+            int retries = 0;
+            for (DurationHistory.Sample sample : recent) {
+                retries += sample.retries;
+            }
+            recentRetries = retries;
+            regressed = isRegression(baseP50, recentP50) || isRegression(baseP95, recentP95);
+        }
+
+        String format() {
+            String name = method.length() <= 80 ? method : "..." + method.substring(method.length() - 77);
+            return String.format("%-80s %9d %9d %9d %9d %7d%s", name, baseP50, baseP95, recentP50, recentP95,
+                    recentRetries, regressed ? "  <- замедление" : "");
+        }
+
+        private static boolean isRegression(long baseline, long current) {
+            return current - baseline >= TestConfig.getDurationsMinDeltaMillis()
+                    && current > baseline * (100 + TestConfig.getDurationsRegressionPercent()) / 100.0;
+        }
+
+        private static List<Long> perInvocation(List<DurationHistory.Sample> samples) {
+            List<Long> values = new ArrayList<>();
+            for (DurationHistory.Sample sample : samples) {
+                values.add(sample.millisPerInvocation());
+            }
+            Collections.sort(values);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package common;
+
+import config.TestConfig;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.LogEntry;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Снимок экрана, исходник страницы (или иерархия экрана) и логи драйвера при падении теста.
+ * <p>
+ * В потоке теста выполняются только запросы к драйверу: скриншот берётся в base64 как пришёл
+ * по сети, исходник и логи — строками. Декодирование, сжатие (gzip) и запись на диск идут в
+ * небольшом фоновом пуле ({@code artifacts.threads}) с ограниченной очередью
+ * ({@code artifacts.queue}): если очередь заполнена, запись выполняет сам поток теста, поэтому
+ * память не растёт при массовых падениях. Файлы лежат в {@code target/failure-artifacts}, ссылки
+ * на них (относительно каталога отчётов, в том числе {@code -d} шарда) добавляются в отчёт TestNG. Работает для тестов, классы которых реализуют
+ * {@link HasDriver}. Подключается через {@code META-INF/services}.
+ */
+public class FailureArtifacts implements IInvokedMethodListener, ISuiteListener {
+
+    private static final Path ARTIFACTS_DIR = Paths.get("target", "failure-artifacts");
+    // Типы логов, которые стоит сохранить: logcat устройства и консоль браузера
+    private static final String[] LOG_TYPES = {"logcat", "browser"};
+
+    private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(
+            TestConfig.getArtifactsThreads(), TestConfig.getArtifactsThreads(), 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(TestConfig.getArtifactsQueue()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "failure-artifacts");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static final AtomicLong CAPTURED = new AtomicLong();
+    private static final AtomicLong CAPTURE_NANOS = new AtomicLong();
+    private static final AtomicLong WRITTEN_BYTES = new AtomicLong();
+    private static final AtomicLong WRITTEN_BY_TEST_THREAD = new AtomicLong();
+    // Поставленные, но ещё не записанные артефакты: растёт до execute, уменьшается после записи
+    private static final AtomicInteger PENDING_WRITES = new AtomicInteger();
+
+    static {
+        WRITER.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod() || result.isSuccess() || !(result.getInstance() instanceof HasDriver)) {
+            return;
+        }
+        WebDriver driver = ((HasDriver) result.getInstance()).getDriverIfAcquired();
+        if (driver == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Capture capture = capture(driver);
+        CAPTURE_NANOS.addAndGet(System.nanoTime() - start);
+        long sequence = CAPTURED.incrementAndGet();
+
+        Path dir = ARTIFACTS_DIR.resolve((result.getTestClass().getRealClass().getSimpleName() + "."
+                + result.getMethod().getMethodName()).replaceAll("[^A-Za-z0-9._-]", "_")
+                + "-" + System.currentTimeMillis() + "-t" + Thread.currentThread().getId() + "-" + sequence);
+        result.setAttribute("failureArtifacts", dir.toString());
+        String link = reportLink(result, dir);
+        Reporter.setCurrentTestResult(result);
+        for (String file : capture.fileNames()) {
+            Reporter.log("<a href=\"" + link + file + "\">" + file + "</a>");
+        }
+        Thread caller = Thread.currentThread();
+        PENDING_WRITES.incrementAndGet();
+        try {
+            WRITER.execute(() -> {
+                try {
+                    if (Thread.currentThread() == caller) {
+                        WRITTEN_BY_TEST_THREAD.incrementAndGet();
+                    }
+                    write(dir, capture);
+                } finally {
+                    PENDING_WRITES.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            // пул уже остановлен: задача не запустится и счётчик не уменьшит
+            PENDING_WRITES.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Путь к каталогу артефактов относительно каталога отчётов TestNG ({@code -d}, у surefire —
+     * {@code target/surefire-reports}), в котором лежат index.html и emailable-report.html.
+     * Каталог отчёта набора — его подкаталог.
+     */
+    private static String reportLink(ITestResult result, Path dir) {
+        Path reportDir = Paths.get(result.getTestContext().getSuite().getOutputDirectory()).toAbsolutePath().getParent();
+        Path relative = reportDir != null ? reportDir.relativize(dir.toAbsolutePath()) : dir.toAbsolutePath();
+        return relative.toString().replace('\\', '/') + "/";
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        awaitWrites();
+        if (CAPTURED.get() == 0) {
+            return;
+        }
+        System.out.println(String.format("Артефакты падений: %d (в %s), в потоке теста в среднем %.1f мс, "
+                        + "записано %d КБ, записей потоком теста при полной очереди: %d",
+                CAPTURED.get(), ARTIFACTS_DIR, CAPTURE_NANOS.get() / 1e6 / CAPTURED.get(),
+                WRITTEN_BYTES.get() / 1024, WRITTEN_BY_TEST_THREAD.get()));
+    }
+
+    /**
+     * Дожидается записи всех поставленных в очередь артефактов (в конце прогона).
+     */
+    static void awaitWrites() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (PENDING_WRITES.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (PENDING_WRITES.get() > 0) {
+            System.out.println("Артефакты падений: не дождались записи " + PENDING_WRITES.get() + " шт. за 60 с");
+        }
+    }
+
+    /**
+     * Только запросы к драйверу; каждая часть необязательна — сломанная сессия не должна мешать остальным.
+     */
+    private static Capture capture(WebDriver driver) {
+        Capture capture = new Capture();
+        if (driver instanceof TakesScreenshot) {
+            try {
+                capture.screenshotBase64 = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+            } catch (WebDriverException e) {
+                System.out.println("Скриншот при падении не получен: " + firstLine(e));
+            }
+        }
+        try {
+            capture.pageSource = driver.getPageSource();
+        } catch (WebDriverException e) {
+            System.out.println("Исходник страницы при падении не получен: " + firstLine(e));
+        }
+        try {
+            Set<String> available = driver.manage().logs().getAvailableLogTypes();
+            for (String type : LOG_TYPES) {
+                if (available.contains(type)) {
+                    capture.logs.put(type, driver.manage().logs().get(type));
+                }
+            }
+        } catch (WebDriverException | UnsupportedOperationException e) {
+            // драйвер не отдаёт логи
+        }
+        return capture;
+    }
+
+    private static void write(Path dir, Capture capture) {
+        try {
+            Files.createDirectories(dir);
+            if (capture.screenshotBase64 != null) {
+                byte[] png = Base64.getMimeDecoder().decode(capture.screenshotBase64);
+                Files.write(dir.resolve("screenshot.png"), png);
+                WRITTEN_BYTES.addAndGet(png.length);
+            }
+            if (capture.pageSource != null) {
+                writeGzip(dir.resolve(capture.pageSourceFileName()), capture.pageSource);
+            }
+            for (Map.Entry<String, LogEntries> log : capture.logs.entrySet()) {
+                StringBuilder text = new StringBuilder();
+                for (LogEntry entry : log.getValue()) {
+                    text.append(entry.toString()).append('\n');
+                }
+                writeGzip(dir.resolve(log.getKey() + ".log.gz"), text.toString());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Не удалось сохранить артефакты падения в " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeGzip(Path file, String content) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        WRITTEN_BYTES.addAndGet(Files.size(file));
+    }
+
+    private static String firstLine(Throwable error) {
+        String message = String.valueOf(error.getMessage());
+        int newline = message.indexOf('\n');
+        return newline > 0 ? message.substring(0, newline) : message;
+    }
+
+    private static final class Capture {
+
+        String screenshotBase64;
+        String pageSource;
+        final Map<String, LogEntries> logs = new LinkedHashMap<>();
+
+        /**
+         * Иерархия экрана Appium — XML, страница браузера — HTML.
+         */
+        String pageSourceFileName() {
+            return pageSource.startsWith("<?xml") || pageSource.startsWith("<hierarchy")
+                    ? "page-source.xml.gz" : "page-source.html.gz";
+        }
+
+        List<String> fileNames() {
+            List<String> names = new ArrayList<>();
+            if (screenshotBase64 != null) {
+                names.add("screenshot.png");
+            }
+            if (pageSource != null) {
+                names.add(pageSourceFileName());
+            }
+            for (String type : logs.keySet()) {
+                names.add(type + ".log.gz");
+            }
+            return names;
+        }
+    }
+}
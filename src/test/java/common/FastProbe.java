@@ -0,0 +1,106 @@
+package common;
+
+import config.TestConfig;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Быстрые проверки необязательных элементов («есть ли на экране попап?») без неявного ожидания.
+ * <p>
+ * На время проверки неявное ожидание сессии сбрасывается в 0 и затем восстанавливается
+ * до {@code implicit.wait.seconds}. Вложенные проверки в одном потоке переключают таймаут
+ * только один раз (на внешнем уровне). Сессия принадлежит одному потоку (пул браузеров,
+ * аренда устройств), поэтому счётчик вложенности хранится в ThreadLocal.
+ * <p>
+ * Статистика: сколько проверок выполнено и сколько времени сэкономлено на промахах
+ * по сравнению с ожиданием полного неявного таймаута.
+ */
+public final class FastProbe {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private static final AtomicLong PROBES = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong SAVED_NANOS = new AtomicLong();
+
+    private FastProbe() {
+    }
+
+    /**
+     * Выполняет запрос к драйверу с нулевым неявным ожиданием.
+     */
+    public static <T> T probe(WebDriver driver, Supplier<T> query) {
+        int[] depth = DEPTH.get();
+        boolean outermost = depth[0]++ == 0;
+        try {
+            if (outermost) {
+                driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+            }
+            return query.get();
+        } finally {
+            depth[0]--;
+            if (outermost) {
+                driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWaitSeconds(), TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Все элементы по локатору без ожидания (пустой список, если элементов нет).
+     */
+    public static <T extends WebElement> List<T> findAll(WebDriver driver, By locator) {
+        long start = System.nanoTime();
+        @SuppressWarnings("unchecked")
+        List<T> elements = (List<T>) probe(driver, () -> driver.findElements(locator));
+        record(elements.isEmpty(), System.nanoTime() - start);
+        return elements;
+    }
+
+    public static boolean isPresent(WebDriver driver, By locator) {
+        return !findAll(driver, locator).isEmpty();
+    }
+
+    /**
+     * Кликает по элементу, если он есть на экране прямо сейчас.
+     */
+    public static boolean clickIfPresent(WebDriver driver, By locator) {
+        List<WebElement> elements = findAll(driver, locator);
+        if (elements.isEmpty()) {
+            return false;
+        }
+        try {
+            elements.get(0).click();
+            return true;
+        } catch (WebDriverException ignored) {
+            return false;
+        }
+    }
+
+    public static void printSummary() {
+        if (PROBES.get() == 0) {
+            return;
+        }
+        System.out.println("=== Быстрые проверки элементов ===");
+        System.out.println("проверок=" + PROBES.get() + " промахов=" + MISSES.get()
+                + " сэкономлено≈" + TimeUnit.NANOSECONDS.toMillis(SAVED_NANOS.get()) + " мс");
+    }
+
+    /**
+     * Промах под неявным ожиданием стоил бы полный таймаут; попадание возвращается сразу.
+     */
+    private static void record(boolean miss, long elapsedNanos) {
+        PROBES.incrementAndGet();
+        if (miss) {
+            MISSES.incrementAndGet();
+            long implicitNanos = TimeUnit.SECONDS.toNanos(TestConfig.getImplicitWaitSeconds());
+            SAVED_NANOS.addAndGet(Math.max(0, implicitNanos - elapsedNanos));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package common;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Тестовый класс, у которого можно получить драйвер текущего потока — для слушателей,
+ * работающих вне теста ({@link FailureArtifacts}).
+ */
+public interface HasDriver {
+
+    /**
+     * Драйвер (браузер или сессия устройства), выданный текущему потоку, или null, если его нет.
+     */
+    WebDriver getDriverIfAcquired();
+}
@@ -0,0 +1,81 @@
+package common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Файл .properties, который безопасно читают и изменяют несколько потоков и несколько JVM
+ * (например, параллельные форки surefire). Изменения выполняются под файловой блокировкой,
+ * запись — через временный файл и атомарное переименование, поэтому читатели без блокировки
+ * всегда видят целостную версию.
+ */
+public final class PersistentProperties {
+
+    private final Path file;
+    private final Path lockFile;
+
+    public PersistentProperties(Path file) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    /**
+     * Снимок текущего содержимого (пустой, если файла ещё нет).
+     */
+    public Properties load() {
+        Properties properties = new Properties();
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.out.println("Не удалось прочитать " + file + ", используется пустой кэш: " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Выполняет действие под блокировкой над свежей копией файла и сохраняет её, если она изменилась.
+     */
+    public <T> T update(Function<Properties, T> action) {
+        synchronized (PersistentProperties.class) {
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    FileLock lock = channel.lock();
+                    try {
+                        Properties properties = load();
+                        Properties before = (Properties) properties.clone();
+                        T result = action.apply(properties);
+                        if (!properties.equals(before)) {
+                            store(properties);
+                        }
+                        return result;
+                    } finally {
+                        lock.release();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ошибка работы с файлом кэша " + file, e);
+            }
+        }
+    }
+
+    private void store(Properties properties) throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, null);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
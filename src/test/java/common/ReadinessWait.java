@@ -0,0 +1,172 @@
+package common;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Единый механизм ожидания готовности страницы или экрана вместо фиксированных пауз.
+ * <p>
+ * Условие опрашивается с коротким интервалом, и ожидание заканчивается сразу, как только
+ * оно выполнено. Фактическая длительность каждого ожидания сохраняется в статистике,
+ * которая печатается в конце прогона ({@link #printSummary()}).
+ */
+public final class ReadinessWait {
+
+    private static final Duration WEB_POLL = Duration.ofMillis(100);
+    private static final Duration MOBILE_POLL = Duration.ofMillis(250);
+    // Сколько DOM должен оставаться без изменений, чтобы страница считалась «успокоившейся»
+    private static final long DOM_QUIET_MS = 300;
+    // Дольше этого после readyState=complete запросы и изменения DOM готовность не задерживают:
+    // реклама, опрос сервера и анимации на demoqa не затихают никогда
+    private static final long SETTLE_CAP_MS = 2000;
+
+    /**
+     * При первом вызове на странице ставит счётчик незавершённых XHR/fetch и MutationObserver,
+     * затем проверяет: document.readyState, отсутствие активных запросов и тишину в DOM.
+     * Запросы, начатые до установки счётчика, не учитываются — их покрывает readyState.
+     * Наблюдаются только добавления и удаления узлов: смена атрибутов и текста (анимации, таймеры)
+     * содержимое страницы не меняет. Через {@code arguments[1]} мс после readyState=complete
+     * страница считается готовой, даже если запросы и изменения DOM не прекратились.
+     */
+    private static final String PAGE_READY_SCRIPT =
+            "var w = window;"
+                    + "if (!w.__readiness) {"
+                    + "  var r = w.__readiness = { pending: 0, lastMutation: Date.now() };"
+                    + "  var send = XMLHttpRequest.prototype.send;"
+                    + "  XMLHttpRequest.prototype.send = function () {"
+                    + "    r.pending++;"
+                    + "    this.addEventListener('loadend', function () { r.pending--; });"
+                    + "    return send.apply(this, arguments);"
+                    + "  };"
+                    + "  if (w.fetch) {"
+                    + "    var fetch = w.fetch;"
+                    + "    w.fetch = function () {"
+                    + "      r.pending++;"
+                    + "      return fetch.apply(this, arguments).finally(function () { r.pending--; });"
+                    + "    };"
+                    + "  }"
+                    + "  new MutationObserver(function () { r.lastMutation = Date.now(); })"
+                    + "    .observe(document, { childList: true, subtree: true });"
+                    + "}"
+                    + "var s = w.__readiness;"
+                    + "if (document.readyState !== 'complete') { return false; }"
+                    + "if (!s.completeAt) { s.completeAt = Date.now(); }"
+                    + "return (s.pending <= 0 && (Date.now() - s.lastMutation) >= arguments[0])"
+                    + "  || (Date.now() - s.completeAt) >= arguments[1];";
+
+    private static final Map<String, Stat> STATS = new ConcurrentHashMap<>();
+
+    private ReadinessWait() {
+    }
+
+    /**
+     * Ждёт, пока страница загрузится: readyState=complete, нет активных XHR/fetch и DOM не меняется
+     * (запросы и изменения DOM задерживают готовность не дольше {@value #SETTLE_CAP_MS} мс).
+     *
+     * @return {@code true}, если страница готова, {@code false} — если истёк таймаут (документ так и не
+     * загрузился); вызывающий решает, продолжать ли
+     */
+    public static boolean forPageReady(WebDriver driver, Duration timeout) {
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        return until("web.pageReady", timeout, WEB_POLL,
+                () -> Boolean.TRUE.equals(js.executeScript(PAGE_READY_SCRIPT, DOM_QUIET_MS, SETTLE_CAP_MS)));
+    }
+
+    /**
+     * Ждёт, пока экран приложения перестанет меняться: два подряд снимка иерархии UiAutomator2 совпадают.
+     */
+    public static boolean forUiIdle(WebDriver driver, Duration timeout) {
+        String[] previous = new String[1];
+        return until("mobile.uiIdle", timeout, MOBILE_POLL, () -> {
+            String source = driver.getPageSource();
+            boolean stable = source.equals(previous[0]);
+            previous[0] = source;
+            return stable;
+        });
+    }
+
+    /**
+     * Ждёт появления хотя бы одного элемента по локатору (например, заполнения списка результатов).
+     */
+    public static boolean forPresence(WebDriver driver, By locator, Duration timeout) {
+        // Опрос без неявного ожидания, иначе каждый промах блокируется на implicit.wait
+        return FastProbe.probe(driver, () -> until("presence " + locator, timeout, MOBILE_POLL,
+                () -> !driver.findElements(locator).isEmpty()));
+    }
+
+    /**
+     * Общий цикл ожидания: опрашивает условие до его выполнения или истечения таймаута.
+     * Ошибки драйвера во время опроса считаются «ещё не готово».
+     */
+    public static boolean until(String name, Duration timeout, Duration pollInterval, BooleanSupplier condition) {
+        return StepTimeline.step("wait " + name, () -> {
+            long start = System.nanoTime();
+            long deadline = start + timeout.toNanos();
+            while (true) {
+                try {
+                    if (condition.getAsBoolean()) {
+                        record(name, System.nanoTime() - start, false);
+                        return true;
+                    }
+                } catch (WebDriverException ignored) {
+                    // страница/экран ещё перестраивается — пробуем снова
+                }
+                if (System.nanoTime() >= deadline) {
+                    record(name, System.nanoTime() - start, true);
+                    return false;
+                }
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    record(name, System.nanoTime() - start, true);
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Печатает сводку по ожиданиям: количество, среднее и максимальное время, число таймаутов.
+     */
+    public static void printSummary() {
+        if (STATS.isEmpty()) {
+            return;
+        }
+        System.out.println("=== Ожидания готовности ===");
+        new TreeMap<>(STATS).forEach((name, stat) -> System.out.println(stat.format(name)));
+    }
+
+    private static void record(String name, long elapsedNanos, boolean timedOut) {
+        STATS.computeIfAbsent(name, key -> new Stat()).add(elapsedNanos, timedOut);
+    }
+
+    private static final class Stat {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long timeouts;
+
+        synchronized void add(long nanos, boolean timedOut) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (timedOut) {
+                timeouts++;
+            }
+        }
+
+        synchronized String format(String name) {
+            return String.format("%-60s count=%d avg=%dms max=%dms timeouts=%d",
+                    name, count, totalNanos / count / 1_000_000, maxNanos / 1_000_000, timeouts);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package common;
+
+import config.TestConfig;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Единые правила повторов для шагов ({@link #step}) и целых тестов ({@link RetryAnalyzer}).
+ * <p>
+ * Повторяются только временные сбои окружения: ответы 502/503/504, обрывы соединения с браузером
+ * или Appium, устаревшие элементы и то, что код явно пометил {@link TransientFailureException}
+ * (например, страница не загрузилась). Таймаут ожидания элемента сам по себе временным не
+ * считается: чаще всего это неверный локатор или несостоявшийся переход. Ошибки проверок
+ * ({@link AssertionError}) не повторяются никогда — тест падает сразу. Пауза перед повтором растёт экспоненциально
+ * ({@code retry.baseDelayMillis * 2^n}, не больше {@code retry.maxDelayMillis}) со случайным
+ * разбросом, чтобы параллельные потоки не повторяли запросы одновременно. Все повторы прогона
+ * расходуют общий бюджет {@code retry.budget}: при массовой недоступности стенда прогон не
+ * растягивается на повторы каждого теста.
+ */
+public final class Retry {
+
+    // Признаки временных сбоев в сообщениях драйвера, браузера и Appium
+    private static final List<String> TRANSIENT_MARKERS = Arrays.asList(
+            "bad gateway", "service unavailable", "gateway timeout",
+            "err_connection", "err_name_not_resolved", "err_timed_out", "err_internet_disconnected",
+            "connection refused", "connection reset", "econnreset", "socket hang up",
+            "timed out receiving message from renderer", "instrumentation process is not running");
+    // Код 502/503/504 только как HTTP-статус («HTTP 502», «status: 503», «HTTP/1.1 504»), а не любое число в тексте
+    private static final Pattern TRANSIENT_STATUS = Pattern.compile(
+            "\\b(?:http(?:/\\d(?:\\.\\d)?)?|status(?: code)?|response code)\\s*[:=]?\\s*50[234]\\b");
+
+    private static final AtomicInteger BUDGET = new AtomicInteger(TestConfig.getRetryBudget());
+    private static final AtomicInteger BUDGET_EXHAUSTED = new AtomicInteger();
+    private static final Map<String, AtomicLong> RETRIES = new ConcurrentHashMap<>();
+    private static final AtomicLong BACKOFF_MILLIS = new AtomicLong();
+
+    private Retry() {
+    }
+
+    /**
+     * Выполняет шаг, повторяя его при временных сбоях (до {@code retry.stepAttempts} попыток).
+     * Перед каждым повтором выполняется {@code beforeRetry} — например, обновление страницы.
+     */
+    public static void step(String name, Runnable action, Runnable beforeRetry) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                StepTimeline.step(attempt == 1 ? name : name + " (повтор)", action);
+                return;
+            } catch (RuntimeException | AssertionError e) {
+                if (attempt >= TestConfig.getRetryStepAttempts() || !shouldRetry("step " + name, e)) {
+                    throw e;
+                }
+                backoff(attempt, "step " + name, e);
+                beforeRetry.run();
+            }
+        }
+    }
+
+    public static void step(String name, Runnable action) {
+        step(name, action, () -> {
+        });
+    }
+
+    /**
+     * Временный ли это сбой окружения (проверяется вся цепочка причин).
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof AssertionError) {
+                return false;
+            }
+            if (current instanceof TransientFailureException
+                    || current instanceof StaleElementReferenceException
+                    || current instanceof UnreachableBrowserException
+                    || current instanceof java.net.ConnectException
+                    || current instanceof java.net.SocketTimeoutException) {
+                return true;
+            }
+            String message = ownMessage(current);
+            if (message != null) {
+                String lower = message.toLowerCase(Locale.ROOT);
+                for (String marker : TRANSIENT_MARKERS) {
+                    if (lower.contains(marker)) {
+                        return true;
+                    }
+                }
+                if (TRANSIENT_STATUS.matcher(lower).find()) {
+                    return true;
+                }
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Пауза перед повтором номер {@code attempt} (с 1): половина экспоненциальной задержки
+     * плюс случайная добавка до второй половины.
+     */
+    static long backoffMillis(int attempt) {
+        long base = TestConfig.getRetryBaseDelayMillis();
+        long max = TestConfig.getRetryMaxDelayMillis();
+        long delay = Math.min(max, base << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Решает, повторять ли после ошибки, и списывает повтор из бюджета прогона.
+     */
+    static boolean shouldRetry(String what, Throwable error) {
+        if (!isTransient(error)) {
+            return false;
+        }
+        if (BUDGET.getAndUpdate(left -> left > 0 ? left - 1 : 0) <= 0) {
+            BUDGET_EXHAUSTED.incrementAndGet();
+            System.out.println("Бюджет повторов исчерпан, " + what + " не повторяется: " + describe(error));
+            return false;
+        }
+        RETRIES.computeIfAbsent(what, key -> new AtomicLong()).incrementAndGet();
+        return true;
+    }
+
+    static void backoff(int attempt, String what, Throwable error) {
+        long pause = backoffMillis(attempt);
+        System.out.println("Повтор " + what + " через " + pause + " мс: " + describe(error));
+        BACKOFF_MILLIS.addAndGet(pause);
+        try {
+            Thread.sleep(pause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Повтор " + what + " прерван", e);
+        }
+    }
+
+    /**
+     * Восстанавливает бюджет в начале прогона.
+     */
+    static void reset() {
+        BUDGET.set(TestConfig.getRetryBudget());
+        BUDGET_EXHAUSTED.set(0);
+        RETRIES.clear();
+        BACKOFF_MILLIS.set(0);
+    }
+
+    /**
+     * Печатает, что и сколько раз повторялось и сколько времени ушло на паузы.
+     */
+    public static void printSummary() {
+        if (RETRIES.isEmpty() && BUDGET_EXHAUSTED.get() == 0) {
+            return;
+        }
+        System.out.println("=== Повторы временных сбоев ===");
+        new TreeMap<>(RETRIES).forEach((what, count) -> System.out.println(what + ": " + count.get()));
+        System.out.println("паузы всего: " + BACKOFF_MILLIS.get() + " мс, остаток бюджета: " + BUDGET.get()
+                + ", отказов из-за бюджета: " + BUDGET_EXHAUSTED.get());
+    }
+
+    /**
+     * Сообщение без сведений о сборке и системе, которые WebDriverException дописывает к тексту ошибки
+     * (версии ОС, Chrome и адреса к сбою не относятся).
+     */
+    private static String ownMessage(Throwable error) {
+        String message = error.getMessage();
+        if (message == null || !(error instanceof WebDriverException)) {
+            return message;
+        }
+        for (String suffix : Arrays.asList("\nFor documentation on this error", "\nBuild info:")) {
+            int index = message.indexOf(suffix);
+            if (index >= 0) {
+                message = message.substring(0, index);
+            }
+        }
+        return message;
+    }
+
+    private static String describe(Throwable error) {
+        String message = error.getMessage();
+        if (message == null) {
+            return error.getClass().getSimpleName();
+        }
+        int newline = message.indexOf('\n');
+        return error.getClass().getSimpleName() + ": " + (newline > 0 ? message.substring(0, newline) : message);
+    }
+}
@@ -0,0 +1,25 @@
+package common;
+
+import config.TestConfig;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+
+/**
+ * Повторяет тест целиком, если он упал из-за временного сбоя окружения (см. {@link Retry}).
+ * Назначается всем тестам через {@link RetryListener}.
+ */
+public class RetryAnalyzer implements IRetryAnalyzer {
+
+    private int attempt = 1;
+
+    @Override
+    public boolean retry(ITestResult result) {
+        String what = "test " + result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        if (attempt >= TestConfig.getRetryTestAttempts() || !Retry.shouldRetry(what, result.getThrowable())) {
+            return false;
+        }
+        Retry.backoff(attempt, what, result.getThrowable());
+        attempt++;
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package common;
+
+import org.testng.IAnnotationTransformer;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.annotations.ITestAnnotation;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Назначает {@link RetryAnalyzer} всем тестам без собственного анализатора, восстанавливает
+ * бюджет повторов в начале прогона и печатает сводку повторов в конце.
+ * Подключается через {@code META-INF/services}.
+ */
+public class RetryListener implements IAnnotationTransformer, ISuiteListener {
+
+    // Значение retryAnalyzer в @Test по умолчанию, т.е. «анализатор не задан»
+    private static final Object NO_RETRY_ANALYZER = defaultRetryAnalyzer();
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        Class<?> current = annotation.getRetryAnalyzerClass();
+        if (current == null || current.equals(NO_RETRY_ANALYZER)) {
+            annotation.setRetryAnalyzer(RetryAnalyzer.class);
+        }
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+        Retry.reset();
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        Retry.printSummary();
+    }
+
+    private static Object defaultRetryAnalyzer() {
+        try {
+            return Test.class.getMethod("retryAnalyzer").getDefaultValue();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("В @Test нет атрибута retryAnalyzer", e);
+        }
+    }
+}
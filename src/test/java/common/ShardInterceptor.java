@@ -0,0 +1,126 @@
+package common;
+
+import config.TestConfig;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Делит тестовые методы между шардами ({@code shard.total} процессов, текущий — {@code shard.index}).
+ * <p>
+ * Методы распределяются по длительности из {@link DurationHistory} (медиана последних
+ * {@code durations.window} прогонов в таком же окружении), а не по количеству: самый долгий метод отдаётся наименее
+ * загруженному шарду (LPT). Для методов без истории берётся медиана известных оценок.
+ * Разбиение детерминировано, поэтому все шарды, прочитав одну и ту же историю, получают
+ * непересекающиеся наборы методов без какой-либо координации. Одна и та же история обеспечивается
+ * так: шарды читают замороженную копию ({@code durations.snapshot}), а не живой файл, который
+ * дописывают закончившие шарды, и читают её один раз за JVM, а не перед каждым {@code <test>}.
+ * Подключается через {@code META-INF/services}.
+ */
+public class ShardInterceptor implements IMethodInterceptor {
+
+    private static final long DEFAULT_ESTIMATE_MILLIS = 1000;
+
+    private static volatile Map<String, Long> history;
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        int total = TestConfig.getShardTotal();
+        int index = TestConfig.getShardIndex();
+        if (total <= 1 || methods.isEmpty()) {
+            return methods;
+        }
+        if (index < 0 || index >= total) {
+            throw new IllegalStateException("shard.index должен быть от 0 до " + (total - 1) + ", задан " + index);
+        }
+
+        Map<String, Long> estimates = estimate(methods);
+        List<String> byDuration = new ArrayList<>(estimates.keySet());
+        byDuration.sort(Comparator.comparing((String method) -> estimates.get(method)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        long[] load = new long[total];
+        Set<String> mine = new HashSet<>();
+        for (String method : byDuration) {
+            int shard = 0;
+            for (int i = 1; i < total; i++) {
+                if (load[i] < load[shard]) {
+                    shard = i;
+                }
+            }
+            load[shard] += estimates.get(method);
+            if (shard == index) {
+                mine.add(method);
+            }
+        }
+
+        List<IMethodInstance> selected = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (mine.contains(key(method))) {
+                selected.add(method);
+            }
+        }
+        long sum = 0;
+        for (long shardLoad : load) {
+            sum += shardLoad;
+        }
+        System.out.println(String.format("Шард %d/%d (%s): %d из %d методов, оценка %.1f с из %.1f с",
+                index + 1, total, context.getName(), mine.size(), estimates.size(), load[index] / 1000.0, sum / 1000.0));
+        return selected;
+    }
+
+    /**
+     * Оценка длительности каждого метода (ключ — {@code Класс.метод}) в порядке TestNG.
+     */
+    private static Map<String, Long> estimate(List<IMethodInstance> methods) {
+        Map<String, Long> history = history();
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        List<Long> known = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            Long millis = history.get(key(method));
+            estimates.put(key(method), millis);
+            if (millis != null) {
+                known.add(millis);
+            }
+        }
+        long fallback = DEFAULT_ESTIMATE_MILLIS;
+        if (!known.isEmpty()) {
+            Collections.sort(known);
+            fallback = Math.max(1, known.get(known.size() / 2));
+        }
+        for (Map.Entry<String, Long> estimate : estimates.entrySet()) {
+            if (estimate.getValue() == null) {
+                estimate.setValue(fallback);
+            }
+        }
+        return estimates;
+    }
+
+    private static Map<String, Long> history() {
+        if (history == null) {
+            synchronized (ShardInterceptor.class) {
+                if (history == null) {
+                    if (TestConfig.getDurationsSnapshot() == null) {
+                        System.out.println("durations.snapshot не задан: шарды, запущенные одновременно, могут"
+                                + " прочитать разную историю (запускайте через scripts/run_sharded_tests.sh)");
+                    }
+                    history = DurationHistory.forSharding()
+                            .medians(TestConfig.getDurationsWindow(), DurationListener.environment());
+                }
+            }
+        }
+        return history;
+    }
+
+    private static String key(IMethodInstance method) {
+        return DurationListener.methodKey(method.getMethod().getRealClass(), method.getMethod().getMethodName());
+    }
+}
@@ -0,0 +1,111 @@
+package common;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Сводит отчёты шардов ({@code <каталог>/<номер шарда>/testng-results.xml}) в один
+ * {@code <каталог>/testng-results.xml}: блоки {@code <suite>} всех шардов и общие счётчики.
+ * <p>
+ * Запуск: {@code java -cp ... common.ShardReportMerger target/shards}. Код выхода 1, если
+ * хотя бы один тест упал или отчёт какого-то шарда отсутствует.
+ */
+public final class ShardReportMerger {
+
+    private static final String[] COUNTERS = {"total", "passed", "failed", "skipped", "ignored"};
+
+    private ShardReportMerger() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "target/shards");
+        List<Path> shardDirs;
+        try (Stream<Path> children = Files.list(dir)) {
+            shardDirs = children.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        if (shardDirs.isEmpty()) {
+            throw new IllegalStateException("В " + dir + " нет каталогов шардов");
+        }
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document merged = builder.newDocument();
+        Element root = merged.createElement("testng-results");
+        merged.appendChild(root);
+        Element reporterOutput = merged.createElement("reporter-output");
+        root.appendChild(reporterOutput);
+
+        long[] totals = new long[COUNTERS.length];
+        List<Path> missing = new ArrayList<>();
+        for (Path shardDir : shardDirs) {
+            Path report = shardDir.resolve("testng-results.xml");
+            if (!Files.isRegularFile(report)) {
+                missing.add(report);
+                continue;
+            }
+            Element shardRoot = parse(builder, report).getDocumentElement();
+            for (int i = 0; i < COUNTERS.length; i++) {
+                String value = shardRoot.getAttribute(COUNTERS[i]);
+                totals[i] += value.isEmpty() ? 0 : Long.parseLong(value);
+            }
+            NodeList children = shardRoot.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                Node child = children.item(i);
+                if (child instanceof Element && "reporter-output".equals(child.getNodeName())) {
+                    for (Node line = child.getFirstChild(); line != null; line = line.getNextSibling()) {
+                        reporterOutput.appendChild(merged.importNode(line, true));
+                    }
+                } else if (child instanceof Element) {
+                    Element suite = (Element) merged.importNode(child, true);
+                    suite.setAttribute("name", suite.getAttribute("name") + " [" + shardDir.getFileName() + "]");
+                    root.appendChild(suite);
+                }
+            }
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            root.setAttribute(COUNTERS[i], String.valueOf(totals[i]));
+        }
+
+        Path output = dir.resolve("testng-results.xml");
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.transform(new DOMSource(merged), new StreamResult(output.toFile()));
+
+        System.out.println(String.format("Шардов: %d, тестов: %d, успешно: %d, упало: %d, пропущено: %d -> %s",
+                shardDirs.size(), totals[0], totals[1], totals[2], totals[3], output));
+        for (Path report : missing) {
+            System.out.println("Нет отчёта шарда: " + report);
+        }
+        if (totals[2] > 0 || !missing.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static Document parse(DocumentBuilder builder, Path report) {
+        try {
+            return builder.parse(report.toFile());
+        } catch (IOException | org.xml.sax.SAXException e) {
+            throw new IllegalStateException("Не удалось разобрать отчёт " + report + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Хронология выполнения теста: шаги Page Object'ов и команды драйвера с длительностями.
+ * <p>
+ * Хронология ведётся для каждого потока отдельно (тест выполняется целиком в одном потоке),
+ * начинается и сохраняется в {@link TimelineListener}. Кроме того, длительности всех шагов
+ * и команд копятся в общей статистике, по которой в конце прогона строится отчёт
+ * о самых медленных шагах. Статистика хранит не сами длительности, а гистограмму фиксированного
+ * размера на каждое имя шага, поэтому память не растёт с числом команд, а потоки не ждут друг друга.
+ */
+public final class StepTimeline {
+
+    private static final ThreadLocal<Timeline> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    // Гистограммы длительностей в микросекундах по имени шага ("step ..." / "cmd ...")
+    private static final Map<String, Histogram> SAMPLES = new ConcurrentHashMap<>();
+
+    private StepTimeline() {
+    }
+
+    /**
+     * Выполняет шаг Page Object'а и записывает его длительность.
+     */
+    public static void step(String name, Runnable body) {
+        Step step = new Step("step " + name);
+        try {
+            body.run();
+        } finally {
+            step.close();
+        }
+    }
+
+    /**
+     * Выполняет шаг Page Object'а, возвращающий значение, и записывает его длительность.
+     */
+    public static <T> T step(String name, Supplier<T> body) {
+        Step step = new Step("step " + name);
+        try {
+            return body.get();
+        } finally {
+            step.close();
+        }
+    }
+
+    /**
+     * Выполняет команду драйвера и записывает её длительность.
+     */
+    public static <T> T command(String name, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            record("cmd " + name, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Сбрасывает общую статистику шагов и команд. Нужен микробенчмаркам, чтобы каждая итерация
+     * начиналась с пустой статистики; в тестах статистика копится за весь прогон.
+     */
+    public static void reset() {
+        SAMPLES.clear();
+    }
+
+    static void begin(String testName) {
+        CURRENT.set(new Timeline(testName, System.nanoTime(), System.currentTimeMillis()));
+        DEPTH.get()[0] = 0;
+    }
+
+    static Timeline end() {
+        Timeline timeline = CURRENT.get();
+        CURRENT.remove();
+        return timeline;
+    }
+
+    /**
+     * Самые медленные шаги по 95-му перцентилю.
+     */
+    static List<StepStats> slowest(int limit) {
+        List<StepStats> stats = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : SAMPLES.entrySet()) {
+            if (entry.getValue().count.sum() > 0) {
+                stats.add(new StepStats(entry.getKey(), entry.getValue()));
+            }
+        }
+        stats.sort(Comparator.comparingLong((StepStats s) -> s.p95).reversed());
+        return stats.size() > limit ? stats.subList(0, limit) : stats;
+    }
+
+    private static void record(String name, long startNanos, long endNanos) {
+        long durationMicros = TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos);
+        Histogram histogram = SAMPLES.get(name);
+        if (histogram == null) {
+            histogram = SAMPLES.computeIfAbsent(name, k -> new Histogram());
+        }
+        histogram.add(durationMicros);
+        Timeline timeline = CURRENT.get();
+        if (timeline != null) {
+            timeline.events.add(new Event(name, TimeUnit.NANOSECONDS.toMicros(startNanos - timeline.startNanos),
+                    durationMicros, DEPTH.get()[0]));
+        }
+    }
+
+    private static final class Step {
+
+        private final String name;
+        private final long start;
+
+        private Step(String name) {
+            this.name = name;
+            this.start = System.nanoTime();
+            DEPTH.get()[0]++;
+        }
+
+        void close() {
+            DEPTH.get()[0]--;
+            record(name, start, System.nanoTime());
+        }
+    }
+
+    static final class Timeline {
+
+        final String testName;
+        final long startNanos;
+        final long startEpochMillis;
+        final List<Event> events = new ArrayList<>();
+
+        private Timeline(String testName, long startNanos, long startEpochMillis) {
+            this.testName = testName;
+            this.startNanos = startNanos;
+            this.startEpochMillis = startEpochMillis;
+        }
+
+        String toJson(String status) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"test\":").append(quote(testName))
+                    .append(",\"status\":").append(quote(status))
+                    .append(",\"startedAt\":").append(startEpochMillis)
+                    .append(",\"durationMs\":").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                    .append(",\"events\":[");
+            // События пишутся при завершении, поэтому вложенный шаг стоит раньше внешнего; сортируем по началу
+            List<Event> ordered = new ArrayList<>(events);
+            ordered.sort(Comparator.comparingLong((Event e) -> e.offsetMicros).thenComparingInt(e -> e.depth));
+            for (int i = 0; i < ordered.size(); i++) {
+                Event event = ordered.get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("\n{\"name\":").append(quote(event.name))
+                        .append(",\"startUs\":").append(event.offsetMicros)
+                        .append(",\"durationUs\":").append(event.durationMicros)
+                        .append(",\"depth\":").append(event.depth).append('}');
+            }
+            return json.append("\n]}\n").toString();
+        }
+    }
+
+    static final class StepStats {
+
+        final String name;
+        final int count;
+        final long p50;
+        final long p90;
+        final long p95;
+        final long max;
+        final long total;
+
+        private StepStats(String name, Histogram histogram) {
+            long[] counts = histogram.counts();
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.name = name;
+            this.count = (int) Math.min(Integer.MAX_VALUE, sum);
+            this.max = histogram.max.get();
+            this.p50 = Math.min(max, percentile(counts, sum, 50));
+            this.p90 = Math.min(max, percentile(counts, sum, 90));
+            this.p95 = Math.min(max, percentile(counts, sum, 95));
+            this.total = histogram.total.sum();
+        }
+
+        String toJson() {
+            return "{\"name\":" + quote(name) + ",\"count\":" + count + ",\"p50Us\":" + p50 + ",\"p90Us\":" + p90
+                    + ",\"p95Us\":" + p95 + ",\"maxUs\":" + max + ",\"totalUs\":" + total + "}";
+        }
+
+        /**
+         * Перцентиль методом ближайшего ранга: середина корзины, в которую попал нужный ранг.
+         */
+        private static long percentile(long[] counts, long sum, int p) {
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * sum));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Histogram.middle(i);
+                }
+            }
+            return Histogram.middle(counts.length - 1);
+        }
+    }
+
+    /**
+     * Гистограмма длительностей с логарифмическими корзинами: значения до {@code 2^SUB_BITS} мкс
+     * хранятся точно, а каждый следующий интервал [2^k, 2^(k+1)) делится на {@code 2^SUB_BITS}
+     * равных корзин, то есть относительная погрешность перцентилей не больше 1/32 (~3%).
+     * Размер не зависит от числа замеров, запись — несколько атомарных операций без блокировок.
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        // Старший бит значения: до 2^40 мкс (~12 суток), всё длиннее попадает в последнюю корзину
+        private static final int MAX_EXPONENT = 40;
+        private static final int SIZE = SUB_COUNT + (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void add(long micros) {
+            long value = Math.max(0, micros);
+            buckets.incrementAndGet(index(value));
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        long[] counts() {
+            long[] counts = new long[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent > MAX_EXPONENT) {
+                return SIZE - 1;
+            }
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + sub;
+        }
+
+        /**
+         * Середина корзины {@code index} в микросекундах.
+         */
+        static long middle(int index) {
+            if (index < SUB_COUNT) {
+                return index;
+            }
+            int exponent = (index - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+            int sub = (index - SUB_COUNT) % SUB_COUNT;
+            long width = 1L << (exponent - SUB_BITS);
+            long lower = (1L << exponent) + sub * width;
+            return lower + width / 2;
+        }
+    }
+
+    private static final class Event {
+
+        final String name;
+        final long offsetMicros;
+        final long durationMicros;
+        final int depth;
+
+        private Event(String name, long offsetMicros, long durationMicros, int depth) {
+            this.name = name;
+            this.offsetMicros = offsetMicros;
+            this.durationMicros = durationMicros;
+            this.depth = depth;
+        }
+    }
+
+    static String quote(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,106 @@
+package common;
+
+import config.TestConfig;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Сохраняет хронологию каждого теста в {@code target/timeline/*.json}, а в конце прогона
+ * печатает и сохраняет ({@code slowest-steps.json}) отчёт о самых медленных шагах и командах
+ * драйвера с перцентилями. Перед ним печатаются сводки ожиданий готовности ({@link ReadinessWait})
+ * и быстрых проверок ({@link FastProbe}) — один раз за прогон, сколько бы блоков тестов в нём ни было.
+ * Подключается через {@code META-INF/services}.
+ */
+public class TimelineListener implements ITestListener, ISuiteListener {
+
+    private static final Path TIMELINE_DIR = Paths.get("target", "timeline");
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        StepTimeline.begin(testName(result));
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        write(result, "passed");
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        write(result, "failed");
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        write(result, "skipped");
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        write(result, "failed");
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        ReadinessWait.printSummary();
+        FastProbe.printSummary();
+        List<StepTimeline.StepStats> slowest = StepTimeline.slowest(TestConfig.getTimelineTopN());
+        if (slowest.isEmpty()) {
+            return;
+        }
+        System.out.println("=== Самые медленные шаги (мс) ===");
+        System.out.println(String.format("%-60s %6s %8s %8s %8s %8s %9s", "шаг", "раз", "p50", "p90", "p95", "max", "всего"));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < slowest.size(); i++) {
+            StepTimeline.StepStats stats = slowest.get(i);
+            System.out.println(String.format("%-60s %6d %8.1f %8.1f %8.1f %8.1f %9.1f", abbreviate(stats.name),
+                    stats.count, ms(stats.p50), ms(stats.p90), ms(stats.p95), ms(stats.max), ms(stats.total)));
+            json.append(i > 0 ? ",\n" : "\n").append(stats.toJson());
+        }
+        // Шарды, запущенные из одного каталога, не перезаписывают отчёты друг друга
+        String fileName = TestConfig.getShardTotal() > 1
+                ? "slowest-steps-shard" + TestConfig.getShardIndex() + ".json"
+                : "slowest-steps.json";
+        writeFile(TIMELINE_DIR.resolve(fileName), json.append("\n]\n").toString());
+    }
+
+    private static void write(ITestResult result, String status) {
+        StepTimeline.Timeline timeline = StepTimeline.end();
+        if (timeline == null) {
+            return;
+        }
+        String fileName = timeline.testName.replaceAll("[^A-Za-z0-9._-]", "_")
+                + "-" + timeline.startEpochMillis + "-t" + Thread.currentThread().getId() + ".json";
+        writeFile(TIMELINE_DIR.resolve(fileName), timeline.toJson(status));
+    }
+
+    private static void writeFile(Path file, String content) {
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.out.println("Не удалось сохранить хронологию " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String testName(ITestResult result) {
+        return result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String abbreviate(String name) {
+        return name.length() <= 60 ? name : name.substring(0, 57) + "...";
+    }
+}
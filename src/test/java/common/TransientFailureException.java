@@ -0,0 +1,18 @@
+package common;
+
+/**
+ * Сбой окружения, а не проверяемого поведения: страница ошибки 502, недоступный сервер и т.п.
+ * {@link Retry} всегда считает такие ошибки временными и повторяет шаг.
+ */
+public class TransientFailureException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransientFailureException(String message) {
+        super(message);
+    }
+
+    public TransientFailureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
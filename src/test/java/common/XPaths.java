@@ -0,0 +1,21 @@
+package common;
+
+/**
+ * Построение XPath-выражений из произвольного текста.
+ */
+public final class XPaths {
+
+    private XPaths() {
+    }
+
+    /**
+     * Строковый литерал XPath 1.0 для {@code text}. В XPath 1.0 нет экранирования кавычек,
+     * поэтому текст с апострофом собирается через {@code concat()}.
+     */
+    public static String literal(String text) {
+        if (!text.contains("'")) {
+            return "'" + text + "'";
+        }
+        return "concat('" + text.replace("'", "', \"'\", '") + "')";
+    }
+}
@@ -2,6 +2,10 @@ package config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -32,6 +36,38 @@ public class TestConfig {
         return PROPERTIES.getProperty(propertyKey);
     }
 
+    private static int getIntEnvOrProperty(String envName, String propertyKey, int defaultValue) {
+        String value = getEnvOrProperty(envName, propertyKey);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private static boolean getBooleanEnvOrProperty(String envName, String propertyKey, boolean defaultValue) {
+        String value = getEnvOrProperty(envName, propertyKey);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Список значений через запятую; пустые элементы пропускаются.
+     */
+    private static List<String> getListEnvOrProperty(String envName, String propertyKey) {
+        List<String> values = new ArrayList<>();
+        String value = getEnvOrProperty(envName, propertyKey);
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (!item.isBlank()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return values;
+    }
+
     public static String getWebBaseUrl() {
         return getEnvOrProperty("WEB_BASE_URL", "web.baseUrl");
     }
@@ -40,6 +76,120 @@ public class TestConfig {
         return getEnvOrProperty("WEB_BROWSER", "web.browser");
     }
 
+    /**
+     * Максимальное число одновременно открытых браузеров в пуле (по умолчанию 4).
+     */
+    public static int getWebPoolSize() {
+        return getIntEnvOrProperty("WEB_POOL_SIZE", "web.pool.size", 4);
+    }
+
+    /**
+     * Профиль запуска браузера: {@code default} (обычное окно) или {@code fast}
+     * (headless, фиксированный размер окна, урезанный набор фоновых сервисов).
+     */
+    public static String getWebProfile() {
+        String profile = getEnvOrProperty("WEB_PROFILE", "web.profile");
+        return profile == null || profile.isBlank() ? "default" : profile.trim().toLowerCase();
+    }
+
+    public static boolean isWebFastProfile() {
+        return "fast".equals(getWebProfile());
+    }
+
+    /**
+     * Headless-режим. По умолчанию включён только в профиле {@code fast}.
+     */
+    public static boolean isWebHeadless() {
+        return getBooleanEnvOrProperty("WEB_HEADLESS", "web.headless", isWebFastProfile());
+    }
+
+    /**
+     * Размер окна браузера в формате {@code ШИРИНАxВЫСОТА} (по умолчанию 1920x1080).
+     */
+    public static String getWebWindowSize() {
+        String size = getEnvOrProperty("WEB_WINDOW_SIZE", "web.windowSize");
+        return size == null || size.isBlank() ? "1920x1080" : size.trim();
+    }
+
+    /**
+     * Заполнять формы настоящим вводом с клавиатуры (по полю за раз) вместо одного скрипта.
+     * Нужно тестам, проверяющим реакцию страницы на отдельные нажатия клавиш.
+     */
+    public static boolean isWebRealTyping() {
+        return getBooleanEnvOrProperty("WEB_REAL_TYPING", "web.realTyping", false);
+    }
+
+    /**
+     * Открывать страницы с локального сервера ({@code src/test/resources/fixtures}) вместо {@code web.baseUrl}.
+     */
+    public static boolean isWebFixtures() {
+        return getBooleanEnvOrProperty("WEB_FIXTURES", "web.fixtures", true);
+    }
+
+    /**
+     * Пускать браузер через локальный кэширующий прокси (запись и воспроизведение ответов).
+     */
+    public static boolean isWebProxy() {
+        return getBooleanEnvOrProperty("WEB_PROXY", "web.proxy", false);
+    }
+
+    /**
+     * Расшифровывать HTTPS в прокси (сертификаты локального центра, браузер с acceptInsecureCerts),
+     * чтобы записывать и воспроизводить и HTTPS-ответы; {@code false} — HTTPS идёт туннелем.
+     */
+    public static boolean isWebProxyMitm() {
+        return getBooleanEnvOrProperty("WEB_PROXY_MITM", "web.proxy.mitm", true);
+    }
+
+    /**
+     * Сколько часов сохранённый прокси ответ считается свежим.
+     */
+    public static int getWebProxyMaxAgeHours() {
+        return getIntEnvOrProperty("WEB_PROXY_MAX_AGE_HOURS", "web.proxy.maxAgeHours", 168);
+    }
+
+    /**
+     * Хосты рекламы и аналитики, запросы к которым прокси блокирует (вместе с поддоменами).
+     */
+    public static List<String> getWebProxyBlockHosts() {
+        return getListEnvOrProperty("WEB_PROXY_BLOCK_HOSTS", "web.proxy.blockHosts");
+    }
+
+    public static boolean isWebBlockImages() {
+        return getBooleanEnvOrProperty("WEB_BLOCK_IMAGES", "web.blockImages", false);
+    }
+
+    public static boolean isWebBlockFonts() {
+        return getBooleanEnvOrProperty("WEB_BLOCK_FONTS", "web.blockFonts", false);
+    }
+
+    /**
+     * Каталог-шаблон профиля браузера. Для каждого браузера создаётся его копия,
+     * чтобы не тратить время на первичную инициализацию профиля. Пусто — не используется.
+     */
+    public static String getWebUserDataTemplate() {
+        return getEnvOrProperty("WEB_USER_DATA_TEMPLATE", "web.userDataTemplate");
+    }
+
+    /**
+     * Версия браузера для подбора драйвера. Пусто — версия установленного браузера.
+     */
+    public static String getWebBrowserVersion() {
+        return getEnvOrProperty("WEB_BROWSER_VERSION", "web.browserVersion");
+    }
+
+    /**
+     * Локальный каталог кэша, который переживает прогоны (драйверы браузеров и т.п.).
+     * По умолчанию {@code ~/.cache/ui-auto-tests}.
+     */
+    public static Path getCacheDir() {
+        String dir = getEnvOrProperty("UI_TESTS_CACHE_DIR", "cache.dir");
+        if (dir == null || dir.isBlank()) {
+            return Paths.get(System.getProperty("user.home"), ".cache", "ui-auto-tests");
+        }
+        return Paths.get(dir.trim());
+    }
+
     public static String getMobilePlatformName() {
         return getEnvOrProperty("MOBILE_PLATFORM_NAME", "mobile.platformName");
     }
@@ -64,6 +214,221 @@ public class TestConfig {
         return getEnvOrProperty("APPIUM_SERVER_URL", "mobile.appiumServerUrl");
     }
 
+    /**
+     * Список udid устройств для параллельного запуска (через запятую).
+     * Пустой список — устройства определяются через {@code adb devices}.
+     */
+    public static List<String> getMobileDevices() {
+        return getListEnvOrProperty("MOBILE_DEVICES", "mobile.devices");
+    }
+
+    /**
+     * Вместо Appium и устройства использовать локальную замену ({@code mobile.fake.FakeAppiumServer}).
+     */
+    public static boolean isMobileFakeAppium() {
+        return getBooleanEnvOrProperty("MOBILE_FAKE_APPIUM", "mobile.fakeAppium", false);
+    }
+
+    /**
+     * Сколько «устройств» предоставляет локальная замена Appium для параллельного запуска.
+     */
+    public static int getMobileFakeDevices() {
+        return getIntEnvOrProperty("MOBILE_FAKE_DEVICES", "mobile.fakeDevices", 4);
+    }
+
+    /**
+     * Первый systemPort UiAutomator2; устройство с индексом i получает порт base + i.
+     */
+    public static int getMobileSystemPortBase() {
+        return getIntEnvOrProperty("MOBILE_SYSTEM_PORT_BASE", "mobile.systemPortBase", 8200);
+    }
+
+    /**
+     * Как сбрасывать приложение между тестовыми классами при переиспользовании сессии Appium:
+     * {@code restart} — перезапуск приложения (по умолчанию), {@code clear} — очистка данных
+     * и запуск, {@code none} — без сброса.
+     */
+    public static String getMobileResetStrategy() {
+        String strategy = getEnvOrProperty("MOBILE_RESET_STRATEGY", "mobile.resetStrategy");
+        return strategy == null || strategy.isBlank() ? "restart" : strategy.trim().toLowerCase();
+    }
+
+    /**
+     * Сколько эмуляторов держит {@code mobile.base.EmulatorPool} (0 — пул выключен, используются
+     * подключённые устройства).
+     */
+    public static int getMobileEmulators() {
+        return getIntEnvOrProperty("MOBILE_EMULATORS", "mobile.emulators", 0);
+    }
+
+    public static String getMobileEmulatorAvd() {
+        String avd = getEnvOrProperty("MOBILE_EMULATOR_AVD", "mobile.emulatorAvd");
+        return avd == null || avd.isBlank() ? "test_emulator" : avd.trim();
+    }
+
+    /**
+     * Имя снимка quick boot, из которого поднимаются эмуляторы пула.
+     */
+    public static String getMobileEmulatorSnapshot() {
+        String snapshot = getEnvOrProperty("MOBILE_EMULATOR_SNAPSHOT", "mobile.emulatorSnapshot");
+        return snapshot == null || snapshot.isBlank() ? "ui-tests-warm" : snapshot.trim();
+    }
+
+    /**
+     * Через сколько тестов эмулятор перезапускается из снимка (0 — не перезапускается).
+     */
+    public static int getMobileEmulatorRecycleAfter() {
+        return getIntEnvOrProperty("MOBILE_EMULATOR_RECYCLE_AFTER", "mobile.emulatorRecycleAfter", 50);
+    }
+
+    public static int getMobileEmulatorBootTimeoutSeconds() {
+        return getIntEnvOrProperty("MOBILE_EMULATOR_BOOT_TIMEOUT", "mobile.emulatorBootTimeoutSeconds", 180);
+    }
+
+    public static boolean isMobileEmulatorHeadless() {
+        return getBooleanEnvOrProperty("MOBILE_EMULATOR_HEADLESS", "mobile.emulatorHeadless", true);
+    }
+
+    /**
+     * Не останавливать эмуляторы пула в конце прогона: следующий прогон подхватит их сразу.
+     */
+    public static boolean isMobileEmulatorKeepRunning() {
+        return getBooleanEnvOrProperty("MOBILE_EMULATOR_KEEP_RUNNING", "mobile.emulatorKeepRunning", false);
+    }
+
+    /**
+     * Путь к APK Wikipedia; пусто — {@code wikipedia.apk} в корне проекта или в {@code scripts}.
+     */
+    public static String getMobileApk() {
+        return getEnvOrProperty("MOBILE_APK", "mobile.apk");
+    }
+
+    /**
+     * Сколько устройств одновременно получают APK.
+     */
+    public static int getMobileApkInstallThreads() {
+        return getIntEnvOrProperty("MOBILE_APK_INSTALL_THREADS", "mobile.apkInstallThreads", 4);
+    }
+
+    /**
+     * Восстанавливать перед сессией снимок данных приложения с пройденным онбордингом
+     * ({@code mobile.base.AppStateSeeder}).
+     */
+    public static boolean isMobileAppStateSeeding() {
+        return getBooleanEnvOrProperty("MOBILE_APP_STATE_SEEDING", "mobile.appStateSeeding", true);
+    }
+
+    /**
+     * Сколько строк брать из наборов данных для data-driven тестов (0 — все).
+     */
+    public static int getDataMaxRows() {
+        return getIntEnvOrProperty("DATA_MAX_ROWS", "data.maxRows", 0);
+    }
+
+    /**
+     * Сколько раз запускать тест, упавший из-за временного сбоя окружения (1 — без повторов).
+     */
+    public static int getRetryTestAttempts() {
+        return getIntEnvOrProperty("RETRY_TEST_ATTEMPTS", "retry.testAttempts", 2);
+    }
+
+    /**
+     * Сколько попыток даётся шагу, обёрнутому в {@code Retry.step}.
+     */
+    public static int getRetryStepAttempts() {
+        return getIntEnvOrProperty("RETRY_STEP_ATTEMPTS", "retry.stepAttempts", 3);
+    }
+
+    /**
+     * Пауза перед первым повтором; каждая следующая вдвое длиннее.
+     */
+    public static int getRetryBaseDelayMillis() {
+        return getIntEnvOrProperty("RETRY_BASE_DELAY_MILLIS", "retry.baseDelayMillis", 500);
+    }
+
+    public static int getRetryMaxDelayMillis() {
+        return getIntEnvOrProperty("RETRY_MAX_DELAY_MILLIS", "retry.maxDelayMillis", 8000);
+    }
+
+    /**
+     * Сколько повторов (шагов и тестов вместе) допускается за весь прогон.
+     */
+    public static int getRetryBudget() {
+        return getIntEnvOrProperty("RETRY_BUDGET", "retry.budget", 10);
+    }
+
+    /**
+     * Число шардов, между которыми делятся тестовые методы (1 — без деления).
+     */
+    public static int getShardTotal() {
+        return getIntEnvOrProperty("SHARD_TOTAL", "shard.total", 1);
+    }
+
+    /**
+     * Номер текущего шарда, от 0 до {@code shard.total - 1}.
+     */
+    public static int getShardIndex() {
+        return getIntEnvOrProperty("SHARD_INDEX", "shard.index", 0);
+    }
+
+    /**
+     * Замороженная копия истории длительностей, по которой делят методы шарды одного запуска
+     * (задаёт scripts/run_sharded_tests.sh). Пусто — читается {@code durations/history.tsv} каталога кэша.
+     */
+    public static Path getDurationsSnapshot() {
+        String file = getEnvOrProperty("DURATIONS_SNAPSHOT", "durations.snapshot");
+        return file == null || file.isBlank() ? null : Paths.get(file.trim());
+    }
+
+    /**
+     * Сколько последних прогонов из истории длительностей учитывается в оценках.
+     */
+    public static int getDurationsWindow() {
+        return getIntEnvOrProperty("DURATIONS_WINDOW", "durations.window", 10);
+    }
+
+    /**
+     * Сколько последних прогонов сравнивается с историей при поиске замедлившихся тестов.
+     */
+    public static int getDurationsRecentRuns() {
+        return getIntEnvOrProperty("DURATIONS_RECENT_RUNS", "durations.recentRuns", 3);
+    }
+
+    /**
+     * На сколько процентов должен вырасти p50 или p95 метода, чтобы считаться замедлением.
+     */
+    public static int getDurationsRegressionPercent() {
+        return getIntEnvOrProperty("DURATIONS_REGRESSION_PERCENT", "durations.regressionPercent", 30);
+    }
+
+    /**
+     * Рост меньше этого (мс) не считается замедлением, даже если в процентах он большой.
+     */
+    public static int getDurationsMinDeltaMillis() {
+        return getIntEnvOrProperty("DURATIONS_MIN_DELTA_MILLIS", "durations.minDeltaMillis", 200);
+    }
+
+    /**
+     * Сколько фоновых потоков сжимают и пишут артефакты упавших тестов.
+     */
+    public static int getArtifactsThreads() {
+        return getIntEnvOrProperty("ARTIFACTS_THREADS", "artifacts.threads", 2);
+    }
+
+    /**
+     * Сколько наборов артефактов может ждать записи; при полной очереди пишет сам поток теста.
+     */
+    public static int getArtifactsQueue() {
+        return getIntEnvOrProperty("ARTIFACTS_QUEUE", "artifacts.queue", 8);
+    }
+
+    /**
+     * Сколько самых медленных шагов выводить в отчёте в конце прогона.
+     */
+    public static int getTimelineTopN() {
+        return getIntEnvOrProperty("TIMELINE_TOP_N", "timeline.topN", 15);
+    }
+
     public static int getImplicitWaitSeconds() {
         return Integer.parseInt(PROPERTIES.getProperty("implicit.wait.seconds", "5"));
     }
@@ -0,0 +1,154 @@
+package mobile.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запуск команд adb для конкретного устройства.
+ */
+public final class Adb {
+
+    private Adb() {
+    }
+
+    /**
+     * Выполняет {@code adb [-s udid] args...} и возвращает stdout.
+     *
+     * @param udid серийный номер устройства или {@code null} для устройства по умолчанию
+     * @throws IllegalStateException если команда завершилась с ошибкой или не уложилась в таймаут
+     */
+    public static String run(String udid, Duration timeout, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("adb");
+        if (udid != null) {
+            command.add("-s");
+            command.add(udid);
+        }
+        command.addAll(Arrays.asList(args));
+
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Thread reader = new Thread(() -> copy(process.getInputStream(), output), "adb-output");
+            reader.setDaemon(true);
+            reader.start();
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("Команда не завершилась за " + timeout.getSeconds() + " сек: " + command);
+            }
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+            String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+            if (process.exitValue() != 0) {
+                throw new IllegalStateException("Команда " + command + " завершилась с кодом "
+                        + process.exitValue() + ": " + text.trim());
+            }
+            return text;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить " + command + " (adb есть в PATH?)", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Выполнение " + command + " прервано", e);
+        }
+    }
+
+    /**
+     * Выполняет {@code adb [-s udid] exec-out args...} и пишет двоичный stdout в файл
+     * (в отличие от {@code adb shell} без преобразования переводов строк).
+     */
+    public static void execOut(String udid, Duration timeout, Path output, String... args) {
+        List<String> command = command(udid, "exec-out", args);
+        ProcessBuilder builder = new ProcessBuilder(command).redirectOutput(output.toFile());
+        String errors = await(command, builder, timeout);
+        if (!errors.isEmpty()) {
+            System.out.println("adb: " + errors.trim());
+        }
+    }
+
+    /**
+     * Выполняет {@code adb [-s udid] exec-in args...}, передавая файл на stdin команды на устройстве.
+     */
+    public static String execIn(String udid, Duration timeout, Path input, String... args) {
+        List<String> command = command(udid, "exec-in", args);
+        ProcessBuilder builder = new ProcessBuilder(command).redirectInput(input.toFile());
+        return await(command, builder, timeout);
+    }
+
+    private static List<String> command(String udid, String mode, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("adb");
+        if (udid != null) {
+            command.add("-s");
+            command.add(udid);
+        }
+        command.add(mode);
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    /**
+     * Ждёт завершения команды с перенаправленным потоком; возвращает stderr
+     * (и stdout, если он не перенаправлен в файл).
+     */
+    private static String await(List<String> command, ProcessBuilder builder, Duration timeout) {
+        Path errors = null;
+        try {
+            errors = Files.createTempFile("adb-", ".err");
+            Process process = builder.redirectError(errors.toFile()).start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Thread reader = new Thread(() -> copy(process.getInputStream(), output), "adb-output");
+            reader.setDaemon(true);
+            reader.start();
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("Команда не завершилась за " + timeout.getSeconds() + " сек: " + command);
+            }
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+            String text = new String(output.toByteArray(), StandardCharsets.UTF_8)
+                    + Files.readString(errors, StandardCharsets.UTF_8);
+            if (process.exitValue() != 0) {
+                throw new IllegalStateException("Команда " + command + " завершилась с кодом "
+                        + process.exitValue() + ": " + text.trim());
+            }
+            return text;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить " + command + " (adb есть в PATH?)", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Выполнение " + command + " прервано", e);
+        } finally {
+            if (errors != null) {
+                errors.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * То же, что {@link #run}, но ошибки только пишутся в лог.
+     */
+    public static String runQuietly(String udid, Duration timeout, String... args) {
+        try {
+            return run(udid, timeout, args);
+        } catch (RuntimeException e) {
+            System.out.println("adb: " + e.getMessage());
+            return "";
+        }
+    }
+
+    private static void copy(InputStream in, ByteArrayOutputStream out) {
+        try {
+            in.transferTo(out);
+        } catch (IOException ignored) {
+            // процесс завершён
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package mobile.base;
+
+import config.TestConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Установка APK Wikipedia на устройства только тогда, когда на устройстве другая сборка.
+ * <p>
+ * APK ищется один раз за прогон ({@code mobile.apk} или {@code wikipedia.apk} в корне проекта /
+ * {@code scripts}) и кладётся в кэш по SHA-256 содержимого: {@code <cache.dir>/apk/<sha256>.apk}.
+ * С устройства берётся SHA-256 установленного {@code base.apk} ({@code pm path} + {@code sha256sum});
+ * одинаковый хэш означает ту же версию и ту же подпись, и установка пропускается. Установки на
+ * несколько устройств идут параллельно ({@code mobile.apkInstallThreads}), а сессия Appium в этом
+ * случае создаётся без capability {@code app}, чтобы Appium не переустанавливал приложение.
+ */
+public final class ApkProvisioner {
+
+    private static final Duration INSTALL_TIMEOUT = Duration.ofMinutes(3);
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(30);
+
+    private static volatile Apk apk;
+    private static volatile boolean apkResolved;
+
+    private static final Map<String, CompletableFuture<Boolean>> PROVISIONED = new ConcurrentHashMap<>();
+    private static volatile ExecutorService installers;
+
+    private ApkProvisioner() {
+    }
+
+    /**
+     * APK из кэша или {@code null}, если APK не найден.
+     */
+    public static Path apk() {
+        Apk resolved = resolve();
+        return resolved != null ? resolved.path : null;
+    }
+
+    /**
+     * Запускает проверку и установку APK сразу на всех устройствах, не дожидаясь результата.
+     */
+    public static void provisionAll(List<Device> devices) {
+        if (TestConfig.isMobileFakeAppium() || resolve() == null) {
+            return;
+        }
+        for (Device device : devices) {
+            provision(device);
+        }
+    }
+
+    /**
+     * Ждёт, пока на устройстве окажется та же сборка, что и в APK.
+     *
+     * @return {@code true}, если приложение из APK установлено и Appium не нужно ставить его заново
+     */
+    public static boolean ensureInstalled(Device device) {
+        if (TestConfig.isMobileFakeAppium() || resolve() == null) {
+            return false;
+        }
+        return provision(device).join();
+    }
+
+    private static CompletableFuture<Boolean> provision(Device device) {
+        return PROVISIONED.computeIfAbsent(device.getKey(),
+                key -> CompletableFuture.supplyAsync(() -> install(device), installers()));
+    }
+
+    private static boolean install(Device device) {
+        Apk source = resolve();
+        String appPackage = TestConfig.getMobileAppPackage();
+        String installed = installedHash(device.getUdid(), appPackage);
+        if (source.sha256.equals(installed)) {
+            System.out.println("На " + device.getKey() + " уже установлена эта сборка " + appPackage + ", установка пропущена");
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            Adb.run(device.getUdid(), INSTALL_TIMEOUT, "install", "-r", "-g", source.path.toString());
+            System.out.println("APK " + source.sha256.substring(0, 12) + " установлен на " + device.getKey() + " за "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " мс"
+                    + (installed == null ? "" : " (была другая сборка)"));
+            return true;
+        } catch (RuntimeException e) {
+            // Установку выполнит Appium по capability app
+            System.out.println("Не удалось установить APK на " + device.getKey() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * SHA-256 установленного {@code base.apk} или {@code null}, если приложения нет или хэш не узнать.
+     */
+    private static String installedHash(String udid, String appPackage) {
+        try {
+            String paths = Adb.run(udid, QUERY_TIMEOUT, "shell", "pm", "path", appPackage);
+            for (String line : paths.split("\\R")) {
+                String path = line.trim();
+                if (path.startsWith("package:") && path.endsWith("base.apk")) {
+                    String output = Adb.run(udid, QUERY_TIMEOUT, "shell", "sha256sum", path.substring("package:".length()));
+                    String hash = output.trim().split("\\s+")[0];
+                    return hash.matches("[0-9a-f]{64}") ? hash : null;
+                }
+            }
+        } catch (RuntimeException e) {
+            // приложение не установлено или на устройстве нет sha256sum
+        }
+        return null;
+    }
+
+    private static ExecutorService installers() {
+        if (installers == null) {
+            synchronized (ApkProvisioner.class) {
+                if (installers == null) {
+                    installers = Executors.newFixedThreadPool(TestConfig.getMobileApkInstallThreads(), runnable -> {
+                        Thread thread = new Thread(runnable, "apk-install");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return installers;
+    }
+
+    private static Apk resolve() {
+        if (!apkResolved) {
+            synchronized (ApkProvisioner.class) {
+                if (!apkResolved) {
+                    File source = findApk();
+                    apk = source != null ? cache(source.toPath()) : null;
+                    apkResolved = true;
+                }
+            }
+        }
+        return apk;
+    }
+
+    /**
+     * Кладёт APK в кэш по хэшу содержимого; одна и та же сборка хранится один раз.
+     */
+    private static Apk cache(Path source) {
+        try {
+            String sha256 = sha256(source);
+            Path cached = TestConfig.getCacheDir().resolve("apk").resolve(sha256 + ".apk");
+            if (!Files.isRegularFile(cached)) {
+                Files.createDirectories(cached.getParent());
+                Path tmp = Files.createTempFile(cached.getParent(), sha256, ".tmp");
+                Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            System.out.println("APK " + source + " -> " + cached);
+            return new Apk(cached, sha256);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось положить APK " + source + " в кэш", e);
+        }
+    }
+
+    private static File findApk() {
+        String configured = TestConfig.getMobileApk();
+        if (configured != null && !configured.isBlank()) {
+            File file = new File(configured.trim());
+            if (!file.isFile()) {
+                throw new IllegalStateException("APK из mobile.apk не найден: " + file.getAbsolutePath());
+            }
+            return file;
+        }
+        String projectRoot = System.getProperty("user.dir");
+        for (Path path : new Path[]{
+                Paths.get(projectRoot, "wikipedia.apk"),
+                Paths.get(projectRoot, "scripts", "wikipedia.apk")}) {
+            if (Files.isRegularFile(path)) {
+                return path.toFile();
+            }
+        }
+        return null;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[1 << 16];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static final class Apk {
+        private final Path path;
+        private final String sha256;
+
+        private Apk(Path path, String sha256) {
+            this.path = path;
+            this.sha256 = sha256;
+        }
+    }
+}
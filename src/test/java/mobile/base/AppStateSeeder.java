@@ -0,0 +1,236 @@
+package mobile.base;
+
+import config.TestConfig;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимок данных приложения Wikipedia с пройденным онбордингом.
+ * <p>
+ * Когда поиск впервые за прогон дошёл до главного экрана, каталоги данных приложения
+ * ({@code shared_prefs}, {@code databases}, {@code files}) упаковываются в tar и сохраняются в
+ * {@code <cache.dir>/app-state/<пакет>-<версия>.tar}. Перед созданием сессии (и при сбросе
+ * {@code mobile.resetStrategy=clear}) снимок возвращается на устройство, поэтому приложение
+ * стартует сразу на главном экране в известном состоянии, без прохода по экранам онбординга.
+ * <p>
+ * Доступ к данным приложения: adbd с root ({@code adb root}), {@code su} или {@code run-as}
+ * (только для debuggable-сборок). Если ни один способ не работает, снимок не используется.
+ * Чтобы снять снимок заново, достаточно удалить файл. Выключается {@code mobile.appStateSeeding=false}.
+ */
+public final class AppStateSeeder {
+
+    private static final Duration ADB_TIMEOUT = Duration.ofSeconds(60);
+    // Кэши приложения в снимок не попадают
+    private static final List<String> DATA_DIRS = Arrays.asList("shared_prefs", "databases", "files");
+
+    private static final Map<String, Access> ACCESS = new ConcurrentHashMap<>();
+    // Устройства, на которых снимок уже снимали (или решили не снимать) в этом прогоне
+    private static final Set<String> CAPTURE_CHECKED = ConcurrentHashMap.newKeySet();
+
+    private AppStateSeeder() {
+    }
+
+    /**
+     * Возвращает снимок на устройство (приложение при этом останавливается).
+     *
+     * @return {@code true}, если данные приложения восстановлены из снимка
+     */
+    public static boolean restore(Device device) {
+        if (!isEnabled()) {
+            return false;
+        }
+        String udid = device.getUdid();
+        String appPackage = TestConfig.getMobileAppPackage();
+        String version = AppVersion.forDevice(udid);
+        if (AppVersion.UNKNOWN.equals(version)) {
+            // приложение ещё не установлено: его поставит Appium, онбординг пройдёт обычным путём
+            return false;
+        }
+        Path snapshot = snapshotFile(appPackage, version);
+        if (!Files.isRegularFile(snapshot)) {
+            System.out.println("Снимка данных " + appPackage + " " + version + " нет: онбординг будет пройден"
+                    + " и сохранён в " + snapshot);
+            return false;
+        }
+        Access access = access(udid, appPackage);
+        if (access == Access.NONE) {
+            return false;
+        }
+        long start = System.nanoTime();
+        String dataDir = dataDir(appPackage);
+        try {
+            Adb.run(udid, ADB_TIMEOUT, "shell", "am", "force-stop", appPackage);
+            List<String> paths = new ArrayList<>();
+            for (String dir : DATA_DIRS) {
+                paths.add(dataDir + "/" + dir);
+            }
+            shell(udid, access, appPackage, concat(Arrays.asList("rm", "-rf"), paths));
+            List<String> extract = new ArrayList<>(access.prefix(appPackage));
+            extract.addAll(Arrays.asList("tar", "-xf", "-", "-C", dataDir));
+            Adb.execIn(udid, ADB_TIMEOUT, snapshot, extract.toArray(new String[0]));
+            if (access != Access.RUN_AS) {
+                // Распакованные под root файлы возвращаем приложению и восстанавливаем контекст SELinux
+                String owner = shell(udid, access, appPackage, "stat", "-c", "%u:%g", dataDir).trim();
+                shell(udid, access, appPackage, concat(Arrays.asList("chown", "-R", owner), paths));
+                shell(udid, access, appPackage, "restorecon", "-R", dataDir);
+            }
+            System.out.println("Данные " + appPackage + " восстановлены из снимка на " + device.getKey() + " за "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " мс");
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Не удалось восстановить снимок данных на " + device.getKey() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Снимает снимок данных приложения, если для его версии снимка ещё нет. Вызывается, когда
+     * приложение на главном экране, т.е. онбординг пройден; на каждое устройство — не больше
+     * одной попытки за прогон.
+     */
+    public static void captureIfMissing(AndroidDriver<MobileElement> driver) {
+        if (!isEnabled()) {
+            return;
+        }
+        Object capability = driver.getCapabilities().getCapability("udid");
+        String udid = capability != null ? capability.toString() : null;
+        if (!CAPTURE_CHECKED.add(udid != null ? udid : "default")) {
+            return;
+        }
+        String appPackage = TestConfig.getMobileAppPackage();
+        String version = AppVersion.forDevice(udid);
+        Path snapshot = snapshotFile(appPackage, version);
+        if (AppVersion.UNKNOWN.equals(version) || Files.isRegularFile(snapshot)) {
+            return;
+        }
+        Access access = access(udid, appPackage);
+        if (access == Access.NONE) {
+            return;
+        }
+        long start = System.nanoTime();
+        String dataDir = dataDir(appPackage);
+        Path temp = null;
+        try {
+            List<String> dirs = new ArrayList<>();
+            for (String name : shell(udid, access, appPackage, "ls", dataDir).split("\\s+")) {
+                if (DATA_DIRS.contains(name)) {
+                    dirs.add(name);
+                }
+            }
+            if (dirs.isEmpty()) {
+                System.out.println("В " + dataDir + " нет данных для снимка");
+                return;
+            }
+            Files.createDirectories(snapshot.getParent());
+            temp = Files.createTempFile(snapshot.getParent(), snapshot.getFileName().toString(), ".part");
+            List<String> pack = new ArrayList<>(access.prefix(appPackage));
+            pack.addAll(Arrays.asList("tar", "-cf", "-", "-C", dataDir));
+            pack.addAll(dirs);
+            Adb.execOut(udid, ADB_TIMEOUT, temp, pack.toArray(new String[0]));
+            if (Files.size(temp) == 0) {
+                throw new IllegalStateException("tar не вернул данных");
+            }
+            // Снимок появляется целиком: параллельные тесты не прочитают недописанный файл
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Снимок данных " + appPackage + " " + version + " (" + String.join(", ", dirs)
+                    + ") сохранён в " + snapshot + " за " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " мс");
+        } catch (IOException e) {
+            System.out.println("Не удалось сохранить снимок данных в " + snapshot + ": " + e);
+        } catch (RuntimeException e) {
+            System.out.println("Не удалось снять снимок данных с " + udid + ": " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    private static boolean isEnabled() {
+        return TestConfig.isMobileAppStateSeeding() && !TestConfig.isMobileFakeAppium();
+    }
+
+    private static Path snapshotFile(String appPackage, String version) {
+        return TestConfig.getCacheDir().resolve("app-state")
+                .resolve(appPackage + "-" + version.replaceAll("[^A-Za-z0-9._-]", "_") + ".tar");
+    }
+
+    private static String[] concat(List<String> head, List<String> tail) {
+        List<String> all = new ArrayList<>(head);
+        all.addAll(tail);
+        return all.toArray(new String[0]);
+    }
+
+    private static String dataDir(String appPackage) {
+        return "/data/data/" + appPackage;
+    }
+
+    private static String shell(String udid, Access access, String appPackage, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("shell");
+        command.addAll(access.prefix(appPackage));
+        command.addAll(Arrays.asList(args));
+        return Adb.run(udid, ADB_TIMEOUT, command.toArray(new String[0]));
+    }
+
+    /**
+     * Способ доступа к данным приложения определяется один раз на устройство.
+     */
+    private static Access access(String udid, String appPackage) {
+        return ACCESS.computeIfAbsent(udid != null ? udid : "default", key -> {
+            for (Access candidate : Arrays.asList(Access.ADBD_ROOT, Access.SU, Access.RUN_AS)) {
+                if (candidate.isAvailable(udid, appPackage)) {
+                    return candidate;
+                }
+            }
+            System.out.println("Нет доступа к данным " + appPackage + " на " + key
+                    + " (нужны adb root, su или debuggable-сборка для run-as): снимок состояния не используется");
+            return Access.NONE;
+        });
+    }
+
+    private enum Access {
+        ADBD_ROOT,
+        SU,
+        RUN_AS,
+        NONE;
+
+        List<String> prefix(String appPackage) {
+            switch (this) {
+                case SU:
+                    return Arrays.asList("su", "0");
+                case RUN_AS:
+                    return Arrays.asList("run-as", appPackage);
+                default:
+                    return Collections.emptyList();
+            }
+        }
+
+        boolean isAvailable(String udid, String appPackage) {
+            List<String> command = new ArrayList<>();
+            command.add("shell");
+            command.addAll(prefix(appPackage));
+            command.addAll(Arrays.asList("id", "-u"));
+            try {
+                String uid = Adb.run(udid, Duration.ofSeconds(15), command.toArray(new String[0])).trim();
+                // run-as выполняет команду от имени приложения, остальным нужен root
+                return this == RUN_AS ? uid.matches("\\d+") : "0".equals(uid);
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+}
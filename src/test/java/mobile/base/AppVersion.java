@@ -0,0 +1,69 @@
+package mobile.base;
+
+import config.TestConfig;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Версия тестируемого приложения на устройстве сессии (versionName из {@code dumpsys package}).
+ * Значение кэшируется на устройство, так что adb вызывается один раз за прогон.
+ */
+public final class AppVersion {
+
+    /**
+     * Версия, если приложение не установлено или adb недоступен.
+     */
+    public static final String UNKNOWN = "unknown";
+
+    private static final Map<String, String> VERSIONS = new ConcurrentHashMap<>();
+
+    private AppVersion() {
+    }
+
+    public static String of(AndroidDriver<MobileElement> driver) {
+        if (TestConfig.isMobileFakeAppium()) {
+            return "fake";
+        }
+        Object udid = driver.getCapabilities().getCapability("udid");
+        if (udid == null) {
+            udid = driver.getCapabilities().getCapability("deviceUDID");
+        }
+        return forDevice(udid != null ? udid.toString() : null);
+    }
+
+    /**
+     * Версия приложения на устройстве с указанным udid ({@code null} — устройство по умолчанию),
+     * когда сессии ещё нет.
+     */
+    public static String forDevice(String udid) {
+        if (TestConfig.isMobileFakeAppium()) {
+            return "fake";
+        }
+        String key = udid != null ? udid : "default";
+        String version = VERSIONS.get(key);
+        if (version == null) {
+            version = query(udid);
+            // Приложение ещё не установлено: после установки версию нужно спросить заново
+            if (!UNKNOWN.equals(version)) {
+                VERSIONS.put(key, version);
+            }
+        }
+        return version;
+    }
+
+    private static String query(String udid) {
+        String output = Adb.runQuietly(udid, Duration.ofSeconds(15),
+                "shell", "dumpsys", "package", TestConfig.getMobileAppPackage());
+        for (String line : output.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("versionName=")) {
+                return trimmed.substring("versionName=".length());
+            }
+        }
+        return UNKNOWN;
+    }
+}
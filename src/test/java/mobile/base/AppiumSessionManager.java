@@ -0,0 +1,249 @@
+package mobile.base;
+
+import common.StepTimeline;
+import config.TestConfig;
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.Activity;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import io.appium.java_client.remote.MobileCapabilityType;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.Response;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Одна сессия Appium на устройство на весь прогон.
+ * <p>
+ * Создание сессии (установка UiAutomator2-сервера, запуск приложения) — самая дорогая часть
+ * мобильного прогона, поэтому сессия создаётся при первом обращении и переиспользуется всеми
+ * тестовыми классами. Когда на устройстве начинает выполняться другой тестовый класс, сбрасывается
+ * только состояние приложения (см. {@link TestConfig#getMobileResetStrategy()}), а закрываются
+ * сессии в конце прогона.
+ * <p>
+ * Устройство арендуется потоком целиком ({@link DeviceScheduler}), поэтому сессии разных устройств
+ * создаются и используются параллельно без общей блокировки.
+ */
+public final class AppiumSessionManager {
+
+    private static final AppiumSessionManager INSTANCE = new AppiumSessionManager();
+
+    private final Map<String, AndroidDriver<MobileElement>> sessions = new ConcurrentHashMap<>();
+    // Последний тестовый класс, работавший на устройстве
+    private final Map<String, String> lastTestClass = new ConcurrentHashMap<>();
+
+    private AppiumSessionManager() {
+    }
+
+    public static AppiumSessionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Возвращает сессию устройства, создавая её при первом обращении.
+     * Если до этого на устройстве работал другой тестовый класс, сбрасывает состояние приложения;
+     * если сессия перестала отвечать, создаёт новую.
+     */
+    public AndroidDriver<MobileElement> acquire(Device device, String testClass) {
+        String deviceKey = device.getKey();
+        AndroidDriver<MobileElement> driver = sessions.get(deviceKey);
+        String previousClass = lastTestClass.put(deviceKey, testClass);
+        if (driver != null) {
+            if (testClass.equals(previousClass)) {
+                return driver;
+            }
+            try {
+                resetAppState(driver, device);
+                return driver;
+            } catch (WebDriverException e) {
+                System.out.println("Сессия Appium для " + deviceKey + " не отвечает, создаём новую: " + e.getMessage());
+                sessions.remove(deviceKey);
+                quietQuit(driver);
+            }
+        }
+        driver = createSession(device);
+        sessions.put(deviceKey, driver);
+        return driver;
+    }
+
+    /**
+     * Закрывает сессию устройства, например перед перезапуском эмулятора; следующий
+     * {@link #acquire} создаст новую.
+     */
+    public void discard(Device device) {
+        lastTestClass.remove(device.getKey());
+        AndroidDriver<MobileElement> driver = sessions.remove(device.getKey());
+        if (driver != null) {
+            quietQuit(driver);
+        }
+    }
+
+    /**
+     * Закрывает все сессии (вызывается в конце прогона).
+     */
+    public synchronized void quitAll() {
+        for (AndroidDriver<MobileElement> driver : sessions.values()) {
+            quietQuit(driver);
+        }
+        sessions.clear();
+        lastTestClass.clear();
+    }
+
+    /**
+     * Дешёвый сброс вместо пересоздания сессии: перезапуск приложения или очистка его данных.
+     */
+    private void resetAppState(AndroidDriver<MobileElement> driver, Device device) {
+        String appPackage = TestConfig.getMobileAppPackage();
+        String strategy = TestConfig.getMobileResetStrategy();
+        long start = System.nanoTime();
+        switch (strategy) {
+            case "none":
+                return;
+            case "clear":
+                driver.terminateApp(appPackage);
+                driver.executeScript("mobile: clearApp", Collections.singletonMap("appId", appPackage));
+                // После очистки возвращаем снимок с пройденным онбордингом, если он есть
+                AppStateSeeder.restore(device);
+                driver.activateApp(appPackage);
+                break;
+            case "restart":
+            default:
+                driver.terminateApp(appPackage);
+                driver.activateApp(appPackage);
+                break;
+        }
+        System.out.println("Сессия Appium переиспользована, состояние приложения сброшено (" + strategy + ") за "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " мс");
+    }
+
+    private AndroidDriver<MobileElement> createSession(Device device) {
+        DesiredCapabilities caps = new DesiredCapabilities();
+        caps.setCapability(MobileCapabilityType.PLATFORM_NAME, TestConfig.getMobilePlatformName());
+        caps.setCapability(MobileCapabilityType.DEVICE_NAME, device.getName());
+        if (device.getUdid() != null) {
+            caps.setCapability(MobileCapabilityType.UDID, device.getUdid());
+        }
+        // Отдельный порт UiAutomator2 для каждого устройства, иначе параллельные сессии конфликтуют
+        caps.setCapability("appium:systemPort", device.getSystemPort());
+        caps.setCapability(MobileCapabilityType.AUTOMATION_NAME, TestConfig.getMobileAutomationName());
+        caps.setCapability(MobileCapabilityType.NEW_COMMAND_TIMEOUT, 300);
+        caps.setCapability("unicodeKeyboard", false);
+        caps.setCapability("resetKeyboard", false);
+        caps.setCapability("autoGrantPermissions", true);
+        // Appium 2.x требует префикс appium: для нестандартных capability.
+        // Длинные таймауты установки оплачиваются один раз за прогон, т.к. сессия переиспользуется
+        caps.setCapability("appium:adbExecTimeout", 120000);
+        caps.setCapability("appium:uiautomator2ServerInstallTimeout", 120000);
+        caps.setCapability("appium:uiautomator2ServerLaunchTimeout", 120000);
+        caps.setCapability("appium:settingsAppInstallTimeout", 120000);
+        caps.setCapability("appium:disableWindowAnimation", true);
+        caps.setCapability("appium:ignoreHiddenApiPolicyError", true);
+        // Дольше ждём готовность устройства к запуску сессии
+        caps.setCapability("appium:deviceReadyTimeout", 60);
+        caps.setCapability("appium:androidDeviceReadyTimeout", 60);
+
+        // Получаем appPackage и appActivity из конфигурации
+        String appPackage = TestConfig.getMobileAppPackage();
+        String appActivity = TestConfig.getMobileAppActivity();
+
+        // Исправляем Activity - используем полный путь
+        if (appActivity != null && appActivity.startsWith(".")) {
+            // Относительный путь - преобразуем в полный
+            appActivity = appPackage + appActivity;
+            System.out.println("Activity преобразован в полный путь: " + appActivity);
+        } else if (appActivity == null || appActivity.isEmpty()) {
+            // Если Activity не указан, используем стандартный
+            appActivity = appPackage + ".main.MainActivity";
+            System.out.println("Activity не указан, используется стандартный: " + appActivity);
+        }
+
+        // ВСЕГДА указываем appPackage и appActivity явно (даже с APK файлом!)
+        // Это необходимо, чтобы избежать ошибки "Intent matches multiple activities"
+        caps.setCapability("appPackage", appPackage);
+        caps.setCapability("appActivity", appActivity);
+        caps.setCapability("appium:appWaitActivity", "org.wikipedia.*");
+        caps.setCapability("appium:appWaitForLaunch", true);
+
+        // Оставляем данные приложения между прогонами, чтобы не видеть онбординг каждый раз
+        caps.setCapability("appium:noReset", true);
+        caps.setCapability("appium:fullReset", false);
+        if (ApkProvisioner.ensureInstalled(device)) {
+            // Та же сборка уже на устройстве: без capability app Appium не переустанавливает приложение
+            System.out.println("Используется установленное приложение: " + appPackage + "/" + appActivity);
+        } else if (ApkProvisioner.apk() != null) {
+            caps.setCapability(MobileCapabilityType.APP, ApkProvisioner.apk().toString());
+            System.out.println("Приложение установит Appium из APK: " + ApkProvisioner.apk());
+        } else {
+            System.out.println("APK файл не найден. Используется установленное приложение: " + appPackage + "/" + appActivity);
+        }
+
+        String appiumUrl = device.getAppiumServerUrl();
+        System.out.println("Подключение к Appium серверу: " + appiumUrl + ", устройство " + device);
+
+        try {
+            if (!TestConfig.isMobileFakeAppium()) {
+                // Явно ждём устройство перед созданием сессии (один раз за прогон)
+                Adb.runQuietly(device.getUdid(), Duration.ofSeconds(120), "wait-for-device");
+                Adb.runQuietly(device.getUdid(), Duration.ofSeconds(15), "shell", "wm", "dismiss-keyguard");
+                Adb.runQuietly(device.getUdid(), Duration.ofSeconds(15), "shell", "input", "keyevent", "82");
+                // Приложение стартует с данными из снимка, минуя онбординг
+                AppStateSeeder.restore(device);
+            }
+
+            long start = System.nanoTime();
+            URL appiumServer = java.net.URI.create(appiumUrl).toURL();
+            // Длительность каждой команды Appium записывается в хронологию теста
+            AppiumCommandExecutor executor = new AppiumCommandExecutor(MobileCommand.commandRepository, appiumServer) {
+                @Override
+                public Response execute(Command command) {
+                    return StepTimeline.command(command.getName(), () -> super.execute(command));
+                }
+            };
+            AndroidDriver<MobileElement> driver = new AndroidDriver<>(executor, caps);
+            driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWaitSeconds(), TimeUnit.SECONDS);
+            // Явно активируем основную активность Wikipedia на случай, если приложение не вывелось на передний план
+            try {
+                driver.startActivity(new Activity(appPackage, appActivity));
+            } catch (Exception ignored) {
+                // если уже запущено или активность недоступна, продолжаем
+            }
+            System.out.println("Успешно подключено к устройству " + device.getKey() + ", сессия создана за "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " мс");
+            return driver;
+        } catch (org.openqa.selenium.SessionNotCreatedException e) {
+            throw new RuntimeException("Не удалось создать сессию Appium. " +
+                    "Убедитесь, что:\n" +
+                    "1. Appium сервер запущен\n" +
+                    "2. Android устройство/эмулятор подключено (проверьте: adb devices)\n" +
+                    "3. Приложение Wikipedia установлено на устройстве\n" +
+                    "Ошибка: " + e.getMessage(), e);
+        } catch (Exception e) {
+            String errorMsg = e.getMessage();
+            if (errorMsg != null && (errorMsg.contains("Connection refused") ||
+                                     errorMsg.contains("connect") ||
+                                     errorMsg.contains("ECONNREFUSED"))) {
+                throw new RuntimeException("Не удалось подключиться к Appium серверу по адресу: " + appiumUrl +
+                        "\nУбедитесь, что Appium сервер запущен и доступен.\n" +
+                        "Ошибка: " + errorMsg, e);
+            } else {
+                throw new RuntimeException("Ошибка при инициализации AndroidDriver: " + errorMsg, e);
+            }
+        }
+    }
+
+    private static void quietQuit(AndroidDriver<MobileElement> driver) {
+        try {
+            driver.quit();
+        } catch (WebDriverException ignored) {
+            // сессия уже могла быть закрыта сервером
+        }
+    }
+}
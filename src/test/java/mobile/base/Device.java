@@ -0,0 +1,53 @@
+package mobile.base;
+
+/**
+ * Android-устройство (эмулятор или реальное), на котором выполняются мобильные тесты.
+ * Каждому устройству выделяется свой {@code systemPort} UiAutomator2, чтобы несколько
+ * сессий на одном Appium-сервере не конфликтовали.
+ */
+public final class Device {
+
+    private final String udid;
+    private final String name;
+    private final int systemPort;
+    private final String appiumServerUrl;
+
+    public Device(String udid, String name, int systemPort, String appiumServerUrl) {
+        this.udid = udid;
+        this.name = name;
+        this.systemPort = systemPort;
+        this.appiumServerUrl = appiumServerUrl;
+    }
+
+    /**
+     * Серийный номер из {@code adb devices}; {@code null}, если устройство не указано явно
+     * и Appium сам выбирает единственное подключённое.
+     */
+    public String getUdid() {
+        return udid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSystemPort() {
+        return systemPort;
+    }
+
+    public String getAppiumServerUrl() {
+        return appiumServerUrl;
+    }
+
+    /**
+     * Ключ устройства для кэшей и отчётов.
+     */
+    public String getKey() {
+        return udid != null ? udid : name;
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + " (systemPort " + systemPort + ")";
+    }
+}
@@ -0,0 +1,122 @@
+package mobile.base;
+
+import config.TestConfig;
+import mobile.fake.FakeAppiumServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Список устройств для мобильных тестов.
+ * <p>
+ * Устройства берутся из {@code mobile.devices} (udid через запятую); если список пуст —
+ * из {@code adb devices}. Если adb не нашёл ни одного устройства, используется одно устройство
+ * по умолчанию из {@code mobile.deviceName}, как и раньше. Каждому устройству назначается
+ * свой {@code systemPort}: {@code mobile.systemPortBase + индекс}. При {@code mobile.fakeAppium=true}
+ * все устройства обслуживает локальная замена Appium, а при {@code mobile.emulators > 0} — эмуляторы
+ * {@link EmulatorPool}. При делении прогона на шарды
+ * ({@code shard.total > 1}) каждый шард работает со своей частью списка; шард, которому
+ * устройства не досталось, пропускает мобильные тесты.
+ */
+public final class DeviceRegistry {
+
+    private static volatile List<Device> devices;
+
+    private DeviceRegistry() {
+    }
+
+    public static List<Device> getDevices() {
+        if (devices == null) {
+            synchronized (DeviceRegistry.class) {
+                if (devices == null) {
+                    devices = Collections.unmodifiableList(load());
+                    System.out.println("Устройства для мобильных тестов: " + devices);
+                    // APK ставится на все устройства сразу, пока первые тесты ещё только стартуют
+                    ApkProvisioner.provisionAll(devices);
+                }
+            }
+        }
+        return devices;
+    }
+
+    private static List<Device> load() {
+        if (EmulatorPool.isEnabled()) {
+            // пул сам поднимает только эмуляторы своего шарда
+            return EmulatorPool.getInstance().start();
+        }
+        List<Device> all = TestConfig.isMobileFakeAppium() ? fakeDevices() : realDevices();
+        return forCurrentShard(all);
+    }
+
+    private static List<Device> realDevices() {
+        List<String> udids = TestConfig.getMobileDevices();
+        if (udids.isEmpty()) {
+            udids = discoverViaAdb();
+        }
+
+        String appiumUrl = TestConfig.getMobileAppiumServerUrl();
+        int portBase = TestConfig.getMobileSystemPortBase();
+        List<Device> result = new ArrayList<>();
+        if (udids.isEmpty()) {
+            result.add(new Device(null, TestConfig.getMobileDeviceName(), portBase, appiumUrl));
+            return result;
+        }
+        for (int i = 0; i < udids.size(); i++) {
+            String udid = udids.get(i);
+            result.add(new Device(udid, udid, portBase + i, appiumUrl));
+        }
+        return result;
+    }
+
+    /**
+     * При делении прогона на шарды каждый шард получает свои устройства: i-е устройство — шарду
+     * {@code i % shard.total}. systemPort назначается по индексу в полном списке, поэтому шарды
+     * на одной машине не конфликтуют по портам. Если устройств меньше, чем шардов, шардам без
+     * устройства достаётся пустой список, и их мобильные тесты пропускаются.
+     */
+    private static List<Device> forCurrentShard(List<Device> all) {
+        int total = TestConfig.getShardTotal();
+        if (total <= 1) {
+            return all;
+        }
+        List<Device> mine = new ArrayList<>();
+        for (int i = TestConfig.getShardIndex(); i < all.size(); i += total) {
+            mine.add(all.get(i));
+        }
+        if (mine.isEmpty()) {
+            System.out.println("Устройств (" + all.size() + ") меньше, чем шардов (" + total + "): шарду "
+                    + (TestConfig.getShardIndex() + 1) + " устройство не досталось");
+        }
+        return mine;
+    }
+
+    /**
+     * «Устройства» локальной замены Appium: все обслуживаются одним сервером, у каждого свои данные приложения.
+     */
+    private static List<Device> fakeDevices() {
+        String appiumUrl = FakeAppiumServer.baseUrl();
+        int portBase = TestConfig.getMobileSystemPortBase();
+        List<Device> result = new ArrayList<>();
+        for (int i = 0; i < TestConfig.getMobileFakeDevices(); i++) {
+            result.add(new Device("fake-" + (i + 1), "fake-" + (i + 1), portBase + i, appiumUrl));
+        }
+        return result;
+    }
+
+    /**
+     * Устройства в состоянии {@code device} из вывода {@code adb devices}.
+     */
+    private static List<String> discoverViaAdb() {
+        List<String> udids = new ArrayList<>();
+        String output = Adb.runQuietly(null, Duration.ofSeconds(15), "devices");
+        for (String line : output.split("\\R")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length == 2 && "device".equals(parts[1])) {
+                udids.add(parts[0]);
+            }
+        }
+        return udids;
+    }
+}
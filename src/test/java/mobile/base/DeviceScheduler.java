@@ -0,0 +1,120 @@
+package mobile.base;
+
+import config.TestConfig;
+import org.testng.SkipException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выдача устройств потокам TestNG: каждый поток арендует одно устройство на время теста,
+ * поэтому мобильные тесты выполняются параллельно на всех подключённых устройствах.
+ * Если свободных устройств нет, поток ждёт. В конце прогона печатается загрузка устройств.
+ */
+public final class DeviceScheduler {
+
+    private static final DeviceScheduler INSTANCE = new DeviceScheduler(DeviceRegistry.getDevices());
+
+    private static final long LEASE_TIMEOUT_MINUTES = 30;
+
+    private final List<Device> devices;
+    private final BlockingQueue<Device> free;
+    private final ThreadLocal<Lease> leased = new ThreadLocal<>();
+    private final Map<String, Usage> usage = new ConcurrentHashMap<>();
+    private final long createdAt = System.nanoTime();
+
+    private DeviceScheduler(List<Device> devices) {
+        this.devices = devices;
+        this.free = new LinkedBlockingQueue<>(devices);
+        for (Device device : devices) {
+            usage.put(device.getKey(), new Usage());
+        }
+    }
+
+    public static DeviceScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Арендует свободное устройство для текущего потока (повторный вызов возвращает то же устройство).
+     *
+     * @throws SkipException если у текущего шарда нет ни одного устройства
+     */
+    public Device lease() {
+        Lease lease = leased.get();
+        if (lease != null) {
+            return lease.device;
+        }
+        if (devices.isEmpty()) {
+            throw new SkipException("У шарда " + (TestConfig.getShardIndex() + 1)
+                    + " нет устройства для мобильных тестов");
+        }
+        try {
+            Device device = free.poll(LEASE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            if (device == null) {
+                throw new IllegalStateException("Нет свободного устройства за " + LEASE_TIMEOUT_MINUTES + " мин");
+            }
+            leased.set(new Lease(device, System.nanoTime()));
+            return device;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание устройства прервано", e);
+        }
+    }
+
+    /**
+     * Устройство, арендованное текущим потоком, или {@code null}.
+     */
+    public Device current() {
+        Lease lease = leased.get();
+        return lease != null ? lease.device : null;
+    }
+
+    public void release() {
+        Lease lease = leased.get();
+        if (lease == null) {
+            return;
+        }
+        leased.remove();
+        usage.get(lease.device.getKey()).add(System.nanoTime() - lease.startedAt);
+        free.offer(lease.device);
+    }
+
+    /**
+     * Доля времени с начала прогона, в течение которой каждое устройство было занято тестами.
+     */
+    public void printUtilization() {
+        long wallNanos = System.nanoTime() - createdAt;
+        System.out.println("=== Загрузка устройств ===");
+        for (Device device : devices) {
+            Usage u = usage.get(device.getKey());
+            System.out.println(String.format("%-30s тестов=%d занято=%ds (%.0f%%)", device.getKey(), u.leases.get(),
+                    TimeUnit.NANOSECONDS.toSeconds(u.busyNanos.get()), 100.0 * u.busyNanos.get() / wallNanos));
+        }
+    }
+
+    private static final class Lease {
+        private final Device device;
+        private final long startedAt;
+
+        private Lease(Device device, long startedAt) {
+            this.device = device;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private static final class Usage {
+        private final AtomicLong leases = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        void add(long nanos) {
+            leases.incrementAndGet();
+            busyNanos.addAndGet(nanos);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package mobile.base;
+
+import config.TestConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул эмуляторов, которые поднимаются из сохранённого снимка quick boot.
+ * <p>
+ * При первом запуске AVD ({@code mobile.emulatorAvd}) один раз загружается с нуля, на него ставится
+ * APK Wikipedia, и состояние сохраняется в снимок {@code mobile.emulatorSnapshot}. Дальше
+ * {@code mobile.emulators} экземпляров запускаются из снимка параллельно в режиме {@code -read-only}:
+ * загрузка занимает секунды, а изменения на устройстве не сохраняются. Готовность проверяется
+ * через adb ({@code sys.boot_completed}) частым опросом, без фиксированных пауз. После
+ * {@code mobile.emulatorRecycleAfter} тестов эмулятор перезапускается из снимка в чистом состоянии.
+ * <p>
+ * Эмулятор слота i слушает консольный порт {@code 5554 + 2i} (udid {@code emulator-<порт>}); при
+ * делении прогона на шарды каждый шард поднимает только свои слоты. Уже запущенный и загруженный
+ * эмулятор на порту слота переиспользуется.
+ */
+public final class EmulatorPool {
+
+    private static final EmulatorPool INSTANCE = new EmulatorPool();
+
+    private static final int CONSOLE_PORT_BASE = 5554;
+    private static final Duration ADB_TIMEOUT = Duration.ofSeconds(30);
+    private static final long POLL_MILLIS = 250;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private volatile boolean shutdownHookAdded;
+
+    private EmulatorPool() {
+    }
+
+    public static EmulatorPool getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return TestConfig.getMobileEmulators() > 0 && !TestConfig.isMobileFakeAppium();
+    }
+
+    /**
+     * Поднимает эмуляторы своего шарда и возвращает их как устройства для тестов.
+     */
+    public synchronized List<Device> start() {
+        int total = TestConfig.getMobileEmulators();
+        int shards = Math.max(1, TestConfig.getShardTotal());
+        List<Integer> mine = new ArrayList<>();
+        for (int i = TestConfig.getShardIndex(); i < total; i += shards) {
+            mine.add(i);
+        }
+        if (mine.isEmpty()) {
+            // мобильные тесты этого шарда будут пропущены (см. DeviceScheduler.lease)
+            System.out.println("Эмуляторов (" + total + ") меньше, чем шардов (" + shards + "): шарду "
+                    + (TestConfig.getShardIndex() + 1) + " эмулятор не достался");
+            return new ArrayList<>();
+        }
+        addShutdownHook();
+
+        long start = System.nanoTime();
+        ensureSnapshot();
+        List<CompletableFuture<Void>> boots = new ArrayList<>();
+        List<Device> devices = new ArrayList<>();
+        for (int index : mine) {
+            Slot slot = new Slot(index);
+            slots.put(slot.udid, slot);
+            devices.add(new Device(slot.udid, slot.udid, TestConfig.getMobileSystemPortBase() + index,
+                    TestConfig.getMobileAppiumServerUrl()));
+            boots.add(CompletableFuture.runAsync(() -> {
+                if (isBooted(slot.udid)) {
+                    System.out.println("Эмулятор " + slot.udid + " уже запущен, используем его");
+                } else {
+                    boot(slot);
+                }
+            }));
+        }
+        try {
+            CompletableFuture.allOf(boots.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            shutdown();
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        System.out.println("Эмуляторы готовы (" + devices.size() + " шт.) за "
+                + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + " сек");
+        return devices;
+    }
+
+    /**
+     * Управляет ли пул этим устройством.
+     */
+    public boolean manages(Device device) {
+        return device.getUdid() != null && slots.containsKey(device.getUdid());
+    }
+
+    /**
+     * Быстрая проверка перед тестом: эмулятор отвечает по adb и загружен.
+     */
+    public boolean isHealthy(Device device) {
+        Slot slot = slots.get(device.getUdid());
+        if (slot == null) {
+            return true;
+        }
+        if (slot.process != null && !slot.process.isAlive()) {
+            return false;
+        }
+        return isBooted(slot.udid);
+    }
+
+    /**
+     * Отмечает завершённый на эмуляторе тест.
+     *
+     * @return {@code true}, если эмулятор отработал свои {@code mobile.emulatorRecycleAfter} тестов
+     * и его пора перезапустить из снимка
+     */
+    public boolean testFinished(Device device) {
+        Slot slot = slots.get(device.getUdid());
+        int limit = TestConfig.getMobileEmulatorRecycleAfter();
+        return slot != null && limit > 0 && slot.tests.incrementAndGet() >= limit;
+    }
+
+    /**
+     * Останавливает эмулятор и поднимает его заново из снимка. Сессию Appium на нём вызывающий
+     * код должен закрыть заранее.
+     */
+    public void recycle(Device device) {
+        Slot slot = slots.get(device.getUdid());
+        if (slot == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        kill(slot);
+        boot(slot);
+        slot.tests.set(0);
+        slot.recycles.incrementAndGet();
+        System.out.println("Эмулятор " + slot.udid + " перезапущен из снимка за "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " мс");
+    }
+
+    /**
+     * Останавливает эмуляторы пула (если не задано {@code mobile.emulatorKeepRunning=true}).
+     */
+    public synchronized void shutdown() {
+        if (slots.isEmpty()) {
+            return;
+        }
+        for (Slot slot : slots.values()) {
+            System.out.println("Эмулятор " + slot.udid + ": тестов после последнего перезапуска " + slot.tests.get()
+                    + ", перезапусков " + slot.recycles.get());
+            if (!TestConfig.isMobileEmulatorKeepRunning()) {
+                kill(slot);
+            }
+        }
+        slots.clear();
+    }
+
+    /**
+     * Создаёт снимок quick boot, если его ещё нет: холодная загрузка, установка APK, сохранение.
+     * Это единственная долгая загрузка; все следующие прогоны стартуют из снимка.
+     * <p>
+     * Проверка и создание идут под файловой блокировкой {@code <avd>.snapshot.lock}: шарды,
+     * запущенные одновременно, создают снимок один раз (остальные ждут) и не видят снимок,
+     * который ещё сохраняется.
+     */
+    private void ensureSnapshot() {
+        String avd = TestConfig.getMobileEmulatorAvd();
+        Path lockFile = avdHome().resolve(avd + ".snapshot.lock");
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                createSnapshotIfMissing(avd);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось заблокировать " + lockFile, e);
+        }
+    }
+
+    private void createSnapshotIfMissing(String avd) {
+        String snapshot = TestConfig.getMobileEmulatorSnapshot();
+        Path snapshotDir = avdHome().resolve(avd + ".avd").resolve("snapshots").resolve(snapshot);
+        if (Files.isDirectory(snapshotDir)) {
+            return;
+        }
+        System.out.println("Снимка " + snapshot + " для AVD " + avd + " нет, создаём (однократная холодная загрузка)");
+        long start = System.nanoTime();
+        Slot slot = new Slot(0);
+        // Снимок сохраняется только из обычного (не read-only) запуска
+        slot.process = launch(slot, "-no-snapshot-load");
+        waitForBoot(slot);
+        Path apk = ApkProvisioner.apk();
+        if (apk != null) {
+            Adb.run(slot.udid, Duration.ofMinutes(3), "install", "-r", "-g", apk.toString());
+        } else {
+            System.out.println("APK Wikipedia не найден: в снимок попадёт только то, что уже есть в AVD");
+        }
+        Adb.run(slot.udid, Duration.ofMinutes(3), "emu", "avd", "snapshot", "save", snapshot);
+        kill(slot);
+        System.out.println("Снимок " + snapshot + " создан за "
+                + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + " сек");
+    }
+
+    private void boot(Slot slot) {
+        slot.process = launch(slot, "-read-only", "-snapshot", TestConfig.getMobileEmulatorSnapshot(),
+                "-no-snapshot-save");
+        waitForBoot(slot);
+        Adb.runQuietly(slot.udid, ADB_TIMEOUT, "shell", "wm", "dismiss-keyguard");
+    }
+
+    private Process launch(Slot slot, String... snapshotArgs) {
+        List<String> command = new ArrayList<>(Arrays.asList(emulatorBinary(),
+                "-avd", TestConfig.getMobileEmulatorAvd(), "-port", String.valueOf(slot.port),
+                "-no-audio", "-no-boot-anim"));
+        command.addAll(Arrays.asList(snapshotArgs));
+        if (TestConfig.isMobileEmulatorHeadless()) {
+            command.addAll(Arrays.asList("-no-window", "-gpu", "swiftshader_indirect"));
+        }
+        try {
+            Path log = Paths.get("target", "emulators", slot.udid + ".log");
+            Files.createDirectories(log.getParent());
+            return new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile())).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить эмулятор: " + command, e);
+        }
+    }
+
+    /**
+     * Ждёт {@code sys.boot_completed=1}, опрашивая эмулятор каждые {@value #POLL_MILLIS} мс.
+     */
+    private void waitForBoot(Slot slot) {
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(TestConfig.getMobileEmulatorBootTimeoutSeconds());
+        long start = System.nanoTime();
+        while (!isBooted(slot.udid)) {
+            if (slot.process != null && !slot.process.isAlive()) {
+                throw new IllegalStateException("Эмулятор " + slot.udid + " завершился при загрузке (код "
+                        + slot.process.exitValue() + "), см. target/emulators/" + slot.udid + ".log");
+            }
+            if (System.nanoTime() - start > timeoutNanos) {
+                kill(slot);
+                throw new IllegalStateException("Эмулятор " + slot.udid + " не загрузился за "
+                        + TestConfig.getMobileEmulatorBootTimeoutSeconds() + " сек");
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание эмулятора " + slot.udid + " прервано", e);
+            }
+        }
+    }
+
+    private static boolean isBooted(String udid) {
+        try {
+            return "1".equals(Adb.run(udid, Duration.ofSeconds(5), "shell", "getprop", "sys.boot_completed").trim());
+        } catch (RuntimeException e) {
+            // устройство ещё не появилось в adb
+            return false;
+        }
+    }
+
+    private static void kill(Slot slot) {
+        Adb.runQuietly(slot.udid, ADB_TIMEOUT, "emu", "kill");
+        Process process = slot.process;
+        slot.process = null;
+        if (process == null) {
+            return;
+        }
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    private void addShutdownHook() {
+        if (shutdownHookAdded) {
+            return;
+        }
+        shutdownHookAdded = true;
+        // Запущенные пулом эмуляторы не должны пережить упавший прогон
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!TestConfig.isMobileEmulatorKeepRunning()) {
+                for (Slot slot : slots.values()) {
+                    if (slot.process != null) {
+                        slot.process.destroyForcibly();
+                    }
+                }
+            }
+        }, "emulator-pool-shutdown"));
+    }
+
+    private static String emulatorBinary() {
+        for (String variable : Arrays.asList("ANDROID_HOME", "ANDROID_SDK_ROOT")) {
+            String sdk = System.getenv(variable);
+            if (sdk != null && !sdk.isBlank()) {
+                File binary = Paths.get(sdk, "emulator", "emulator").toFile();
+                if (binary.canExecute()) {
+                    return binary.getPath();
+                }
+            }
+        }
+        // иначе ищем в PATH
+        return "emulator";
+    }
+
+    private static Path avdHome() {
+        String home = System.getenv("ANDROID_AVD_HOME");
+        if (home != null && !home.isBlank()) {
+            return Paths.get(home);
+        }
+        return Paths.get(System.getProperty("user.home"), ".android", "avd");
+    }
+
+    private static final class Slot {
+        private final int port;
+        private final String udid;
+        private final AtomicInteger tests = new AtomicInteger();
+        private final AtomicInteger recycles = new AtomicInteger();
+        private volatile Process process;
+
+        private Slot(int index) {
+            this.port = CONSOLE_PORT_BASE + 2 * index;
+            this.udid = "emulator-" + port;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package mobile.base;
+
+import common.ReadinessWait;
+import io.appium.java_client.MobileBy;
+import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Жесты на стороне UiAutomator2-сервера.
+ * <p>
+ * {@code mobile: scrollGesture} и {@code mobile: swipeGesture} выполняются одной командой: сервер сам
+ * ведёт палец и дожидается, пока UI успокоится, а прокрутка ещё и сообщает, есть ли куда крутить
+ * дальше. Прокрутка до элемента — один поиск {@code UiScrollable.scrollIntoView} вместо серии
+ * свайпов с проверками. Если сервер жесты не поддерживает (старый UiAutomator2), выполняется
+ * W3C-свайп с клиента, как раньше; остальные ошибки драйвера (устаревший элемент, упавшая сессия)
+ * пробрасываются.
+ */
+public final class Gestures {
+
+    /**
+     * Направление движения содержимого: {@link #DOWN} — прокрутка к концу страницы.
+     */
+    public enum Direction {
+        UP, DOWN, LEFT, RIGHT;
+
+        String arg() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Результат прокрутки: есть ли куда крутить дальше.
+     */
+    public enum ScrollResult {
+        /** После прокрутки содержимое продолжается. */
+        MORE,
+        /** Прокрутка дошла до конца. */
+        END,
+        /** Прокрутка выполнена свайпом с клиента, дошли ли до конца — неизвестно. */
+        UNKNOWN
+    }
+
+    // Доля области, на которую сдвигается содержимое за одну прокрутку
+    private static final double DEFAULT_PERCENT = 0.75;
+
+    private Gestures() {
+    }
+
+    /**
+     * Прокручивает элемент (или весь экран, если {@code area == null}) в направлении {@code direction}.
+     *
+     * @return {@link ScrollResult#MORE}, если после прокрутки можно крутить дальше,
+     * {@link ScrollResult#UNKNOWN} — если сервер жест не поддерживает и прокрутка выполнена с клиента
+     */
+    public static ScrollResult scroll(AndroidDriver<MobileElement> driver, MobileElement area, Direction direction) {
+        Map<String, Object> args = gestureArea(driver, area);
+        args.put("direction", direction.arg());
+        args.put("percent", DEFAULT_PERCENT);
+        try {
+            return Boolean.TRUE.equals(driver.executeScript("mobile: scrollGesture", args))
+                    ? ScrollResult.MORE : ScrollResult.END;
+        } catch (WebDriverException e) {
+            if (!isUnsupported(e)) {
+                throw e;
+            }
+            // Свайп пальцем в противоположную сторону; дойдём ли до конца, с клиента не узнать
+            clientSwipe(driver, area, opposite(direction));
+            return ScrollResult.UNKNOWN;
+        }
+    }
+
+    /**
+     * Свайп пальцем по элементу (или по всему экрану) в направлении {@code direction}.
+     */
+    public static void swipe(AndroidDriver<MobileElement> driver, MobileElement area, Direction direction) {
+        Map<String, Object> args = gestureArea(driver, area);
+        args.put("direction", direction.arg());
+        args.put("percent", DEFAULT_PERCENT);
+        try {
+            driver.executeScript("mobile: swipeGesture", args);
+        } catch (WebDriverException e) {
+            if (!isUnsupported(e)) {
+                throw e;
+            }
+            clientSwipe(driver, area, direction);
+        }
+    }
+
+    /**
+     * Прокручивает первый прокручиваемый контейнер, пока не появится элемент с текстом {@code text},
+     * и возвращает этот элемент. Прокрутка и поиск выполняются на сервере одной командой.
+     *
+     * @throws org.openqa.selenium.NoSuchElementException если элемента нет и после прокрутки до конца
+     */
+    public static MobileElement scrollIntoView(AndroidDriver<MobileElement> driver, String text) {
+        String escaped = text.replace("\\", "\\\\").replace("\"", "\\\"");
+        return driver.findElement(MobileBy.AndroidUIAutomator("new UiScrollable(new UiSelector().scrollable(true))"
+                + ".scrollIntoView(new UiSelector().textContains(\"" + escaped + "\"))"));
+    }
+
+    /**
+     * Сервер не знает команду: W3C-ошибки unknown command / unknown method / unsupported operation
+     * или «Unknown mobile command» от Appium.
+     */
+    private static boolean isUnsupported(WebDriverException error) {
+        if (error instanceof UnsupportedCommandException) {
+            return true;
+        }
+        String message = error.getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("unknown mobile command");
+    }
+
+    private static Map<String, Object> gestureArea(AndroidDriver<MobileElement> driver, MobileElement area) {
+        Map<String, Object> args = new LinkedHashMap<>();
+        if (area != null) {
+            args.put("elementId", ((RemoteWebElement) area).getId());
+            return args;
+        }
+        // Весь экран без полос по краям: у краёв жесты перехватывает система
+        Dimension size = driver.manage().window().getSize();
+        args.put("left", size.getWidth() / 10);
+        args.put("top", size.getHeight() / 5);
+        args.put("width", size.getWidth() * 8 / 10);
+        args.put("height", size.getHeight() * 3 / 5);
+        return args;
+    }
+
+    private static Direction opposite(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            default:
+                return Direction.LEFT;
+        }
+    }
+
+    /**
+     * Свайп W3C-действиями с клиента — для серверов без {@code mobile: swipeGesture}.
+     */
+    private static void clientSwipe(AndroidDriver<MobileElement> driver, MobileElement area, Direction direction) {
+        Rectangle rect;
+        if (area != null) {
+            rect = area.getRect();
+        } else {
+            rect = new Rectangle(new Point(0, 0), driver.manage().window().getSize());
+        }
+        Point center = new Point(rect.getX() + rect.getWidth() / 2, rect.getY() + rect.getHeight() / 2);
+        int dx = (int) (rect.getWidth() * DEFAULT_PERCENT / 2);
+        int dy = (int) (rect.getHeight() * DEFAULT_PERCENT / 2);
+        Point start;
+        Point end;
+        switch (direction) {
+            case UP:
+                start = new Point(center.getX(), center.getY() + dy);
+                end = new Point(center.getX(), center.getY() - dy);
+                break;
+            case DOWN:
+                start = new Point(center.getX(), center.getY() - dy);
+                end = new Point(center.getX(), center.getY() + dy);
+                break;
+            case LEFT:
+                start = new Point(center.getX() + dx, center.getY());
+                end = new Point(center.getX() - dx, center.getY());
+                break;
+            default:
+                start = new Point(center.getX() - dx, center.getY());
+                end = new Point(center.getX() + dx, center.getY());
+                break;
+        }
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence swipe = new Sequence(finger, 1);
+        swipe.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), start.getX(), start.getY()));
+        swipe.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        swipe.addAction(finger.createPointerMove(Duration.ofMillis(600), PointerInput.Origin.viewport(), end.getX(), end.getY()));
+        swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        driver.perform(Collections.singletonList(swipe));
+        // Инерционную прокрутку после клиентского свайпа приходится дожидаться отдельно
+        ReadinessWait.forUiIdle(driver, Duration.ofSeconds(2));
+    }
+}
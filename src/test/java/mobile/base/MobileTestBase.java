@@ -1,162 +1,111 @@
 package mobile.base;
 
+import common.FastProbe;
+import common.HasDriver;
 import config.TestConfig;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.android.AndroidDriver;
-import io.appium.java_client.android.Activity;
-import io.appium.java_client.remote.MobileCapabilityType;
-import org.openqa.selenium.remote.DesiredCapabilities;
+import mobile.fake.FakeAppiumServer;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.ui.WebDriverWait;
-import org.testng.annotations.AfterClass;
-import org.testng.annotations.BeforeClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.BeforeMethod;
 
-import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.function.Supplier;
 
 /**
  * Базовый класс для мобильных тестов (Wikipedia).
- * Инициализирует AndroidDriver с использованием Appium.
+ * <p>
+ * Перед каждым тестом поток арендует устройство у {@link DeviceScheduler} и получает его сессию
+ * из {@link AppiumSessionManager}: сессия создаётся один раз на устройство и переиспользуется.
+ * Благодаря этому тесты можно запускать параллельно (parallel="methods") на всех устройствах.
+ * Эмуляторы {@link EmulatorPool} проверяются перед тестом и перезапускаются из снимка, если не
+ * отвечают или отработали положенное число тестов.
  */
-public abstract class MobileTestBase {
+public abstract class MobileTestBase implements HasDriver {
 
-    protected AndroidDriver<MobileElement> driver;
-    protected WebDriverWait wait;
+    private static final AppiumSessionManager SESSIONS = AppiumSessionManager.getInstance();
+    private static final DeviceScheduler DEVICES = DeviceScheduler.getInstance();
+    private static final EmulatorPool EMULATORS = EmulatorPool.getInstance();
 
-    /**
-     * Находит APK файл Wikipedia в проекте.
-     * Проверяет корень проекта и директорию scripts.
-     */
-    private String findWikipediaApk() {
-        // Получаем текущую рабочую директорию (обычно это корень проекта)
-        String projectRoot = System.getProperty("user.dir");
-        
-        // Возможные пути к APK
-        String[] possiblePaths = {
-            projectRoot + File.separator + "wikipedia.apk",
-            projectRoot + File.separator + "scripts" + File.separator + "wikipedia.apk",
-            "wikipedia.apk",
-            "scripts" + File.separator + "wikipedia.apk"
-        };
-        
-        for (String path : possiblePaths) {
-            File apkFile = new File(path);
-            if (apkFile.exists() && apkFile.isFile()) {
-                System.out.println("Найден APK файл: " + apkFile.getAbsolutePath());
-                return apkFile.getAbsolutePath();
+    private final ThreadLocal<AndroidDriver<MobileElement>> driver = new ThreadLocal<>();
+    private final ThreadLocal<WebDriverWait> wait = new ThreadLocal<>();
+
+    @BeforeMethod(alwaysRun = true)
+    public void acquireMobileDriver() {
+        Device device = DEVICES.lease();
+        try {
+            if (EMULATORS.manages(device) && !EMULATORS.isHealthy(device)) {
+                System.out.println("Эмулятор " + device.getKey() + " не отвечает, перезапускаем из снимка");
+                SESSIONS.discard(device);
+                EMULATORS.recycle(device);
             }
+            AndroidDriver<MobileElement> session = SESSIONS.acquire(device, getClass().getName());
+            driver.set(session);
+            wait.set(new WebDriverWait(session, TestConfig.getExplicitWaitSeconds()));
+        } catch (RuntimeException e) {
+            DEVICES.release();
+            throw e;
         }
-        
-        return null;
     }
 
-    @BeforeClass(alwaysRun = true)
-    public void setUpMobileDriver() throws MalformedURLException {
-        DesiredCapabilities caps = new DesiredCapabilities();
-        caps.setCapability(MobileCapabilityType.PLATFORM_NAME, TestConfig.getMobilePlatformName());
-        caps.setCapability(MobileCapabilityType.DEVICE_NAME, TestConfig.getMobileDeviceName());
-        caps.setCapability(MobileCapabilityType.AUTOMATION_NAME, TestConfig.getMobileAutomationName());
-        caps.setCapability(MobileCapabilityType.NEW_COMMAND_TIMEOUT, 300);
-        caps.setCapability("unicodeKeyboard", false);
-        caps.setCapability("resetKeyboard", false);
-        caps.setCapability("autoGrantPermissions", true);
-        // Appium 2.x требует префикс appium: для нестандартных capability
-        caps.setCapability("appium:adbExecTimeout", 120000);
-        caps.setCapability("appium:uiautomator2ServerInstallTimeout", 120000);
-        caps.setCapability("appium:uiautomator2ServerLaunchTimeout", 120000);
-        caps.setCapability("appium:settingsAppInstallTimeout", 120000);
-        caps.setCapability("appium:disableWindowAnimation", true);
-        caps.setCapability("appium:ignoreHiddenApiPolicyError", true);
-        // Дольше ждём готовность устройства к запуску сессии
-        caps.setCapability("appium:deviceReadyTimeout", 60);
-        caps.setCapability("appium:androidDeviceReadyTimeout", 60);
-        
-        // Получаем appPackage и appActivity из конфигурации
-        String appPackage = TestConfig.getMobileAppPackage();
-        String appActivity = TestConfig.getMobileAppActivity();
-        
-        // Исправляем Activity - используем полный путь
-        if (appActivity != null && appActivity.startsWith(".")) {
-            // Относительный путь - преобразуем в полный
-            appActivity = appPackage + appActivity;
-            System.out.println("Activity преобразован в полный путь: " + appActivity);
-        } else if (appActivity == null || appActivity.isEmpty()) {
-            // Если Activity не указан, используем стандартный
-            appActivity = appPackage + ".main.MainActivity";
-            System.out.println("Activity не указан, используется стандартный: " + appActivity);
-        }
-        
-        // ВСЕГДА указываем appPackage и appActivity явно (даже с APK файлом!)
-        // Это необходимо, чтобы избежать ошибки "Intent matches multiple activities"
-        caps.setCapability("appPackage", appPackage);
-        caps.setCapability("appActivity", appActivity);
-        caps.setCapability("appium:appWaitActivity", "org.wikipedia.*");
-        caps.setCapability("appium:appWaitForLaunch", true);
-        
-        // Пытаемся найти APK файл
-        String apkPath = findWikipediaApk();
-        if (apkPath != null) {
-            // Если APK найден - используем его для установки
-            caps.setCapability(MobileCapabilityType.APP, apkPath);
-            // Оставляем данные приложения между прогонами, чтобы не видеть онбординг каждый раз
-            caps.setCapability("appium:noReset", true);
-            caps.setCapability("appium:fullReset", false);
-            System.out.println("Используется APK файл для установки приложения: " + apkPath);
-            System.out.println("Будет запущена активность: " + appPackage + "/" + appActivity);
-        } else {
-            // Если APK не найден - используем установленное приложение
-            caps.setCapability("appium:noReset", true);
-            caps.setCapability("appium:fullReset", false);
-            System.out.println("APK файл не найден. Используется установленное приложение: " + appPackage + "/" + appActivity);
-        }
-
-        String appiumUrl = TestConfig.getMobileAppiumServerUrl();
-        System.out.println("Подключение к Appium серверу: " + appiumUrl);
-        
+    @AfterMethod(alwaysRun = true)
+    public void releaseMobileDriver() {
+        driver.remove();
+        wait.remove();
+        Device device = DEVICES.current();
         try {
-            // Явно ждём устройство перед созданием сессии
-            Runtime.getRuntime().exec(new String[]{"adb", "wait-for-device"}).waitFor();
-            Runtime.getRuntime().exec(new String[]{"adb", "shell", "wm", "dismiss-keyguard"}).waitFor();
-            Runtime.getRuntime().exec(new String[]{"adb", "shell", "input", "keyevent", "82"}).waitFor();
-
-            URL appiumServer = java.net.URI.create(appiumUrl).toURL();
-            driver = new AndroidDriver<>(appiumServer, caps);
-            driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWaitSeconds(), java.util.concurrent.TimeUnit.SECONDS);
-            wait = new WebDriverWait(driver, TestConfig.getExplicitWaitSeconds());
-            // Явно активируем основную активность Wikipedia на случай, если приложение не вывелось на передний план
-            try {
-                driver.startActivity(new Activity(appPackage, appActivity));
-            } catch (Exception ignored) {
-                // если уже запущено или активность недоступна, продолжаем
-            }
-            System.out.println("Успешно подключено к устройству Android");
-        } catch (org.openqa.selenium.SessionNotCreatedException e) {
-            throw new RuntimeException("Не удалось создать сессию Appium. " +
-                    "Убедитесь, что:\n" +
-                    "1. Appium сервер запущен\n" +
-                    "2. Android устройство/эмулятор подключено (проверьте: adb devices)\n" +
-                    "3. Приложение Wikipedia установлено на устройстве\n" +
-                    "Ошибка: " + e.getMessage(), e);
-        } catch (Exception e) {
-            String errorMsg = e.getMessage();
-            if (errorMsg != null && (errorMsg.contains("Connection refused") || 
-                                     errorMsg.contains("connect") || 
-                                     errorMsg.contains("ECONNREFUSED"))) {
-                throw new RuntimeException("Не удалось подключиться к Appium серверу по адресу: " + appiumUrl + 
-                        "\nУбедитесь, что Appium сервер запущен и доступен.\n" +
-                        "Ошибка: " + errorMsg, e);
-            } else {
-                throw new RuntimeException("Ошибка при инициализации AndroidDriver: " + errorMsg, e);
+            if (device != null && EMULATORS.testFinished(device)) {
+                SESSIONS.discard(device);
+                EMULATORS.recycle(device);
             }
+        } finally {
+            DEVICES.release();
         }
     }
 
-    @AfterClass(alwaysRun = true)
-    public void tearDownMobileDriver() {
-        if (driver != null) {
-            driver.quit();
+    @AfterSuite(alwaysRun = true)
+    public void tearDownMobileDrivers() {
+        SESSIONS.quitAll();
+        FakeAppiumServer.stop();
+        EMULATORS.shutdown();
+        DEVICES.printUtilization();
+    }
+
+    /**
+     * Сессия устройства, арендованного текущим потоком.
+     */
+    protected AndroidDriver<MobileElement> getDriver() {
+        AndroidDriver<MobileElement> session = driver.get();
+        if (session == null) {
+            throw new IllegalStateException("Устройство не арендовано: тест вызван вне @BeforeMethod/@AfterMethod");
         }
+        return session;
+    }
+
+    @Override
+    public WebDriver getDriverIfAcquired() {
+        return driver.get();
     }
-}
 
+    protected WebDriverWait getWait() {
+        return wait.get();
+    }
+
+    /**
+     * Есть ли элемент на экране прямо сейчас — без неявного ожидания.
+     * Для необязательных элементов (попапы, баннеры), которых обычно нет.
+     */
+    protected boolean isPresent(By locator) {
+        return FastProbe.isPresent(getDriver(), locator);
+    }
 
+    /**
+     * Выполняет несколько проверок подряд с одним переключением неявного ожидания.
+     */
+    protected <T> T probe(Supplier<T> checks) {
+        return FastProbe.probe(getDriver(), checks);
+    }
+}
@@ -0,0 +1,112 @@
+package mobile.base;
+
+import common.ReadinessWait;
+import org.openqa.selenium.WebDriver;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Снимок иерархии экрана, полученный одним вызовом {@code getPageSource()}.
+ * <p>
+ * Проверки «есть ли на экране такой элемент» выполняются локально по XML, поэтому поиск
+ * среди десятков кандидатов (кнопки онбординга, промо, диалоги) стоит одного запроса к Appium
+ * и не упирается в неявное ожидание на каждом промахе.
+ */
+public final class ScreenSnapshot {
+
+    private static final Duration STABLE_POLL = Duration.ofMillis(250);
+
+    private final Set<String> resourceIds = new HashSet<>();
+    private final Set<String> contentDescs = new HashSet<>();
+    private final List<String> texts = new ArrayList<>();
+
+    private ScreenSnapshot(String pageSource) {
+        Document document = parse(pageSource);
+        NodeList nodes = document.getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element node = (Element) nodes.item(i);
+            if ("false".equals(node.getAttribute("displayed"))) {
+                continue;
+            }
+            addIfPresent(resourceIds, node.getAttribute("resource-id"));
+            addIfPresent(contentDescs, node.getAttribute("content-desc"));
+            addIfPresent(texts, node.getAttribute("text"));
+        }
+    }
+
+    public static ScreenSnapshot capture(WebDriver driver) {
+        return new ScreenSnapshot(driver.getPageSource());
+    }
+
+    /**
+     * Ждёт, пока экран перестанет меняться (два одинаковых снимка подряд), и возвращает последний снимок.
+     * Совмещает паузу после клика и получение иерархии для следующего шага.
+     */
+    public static ScreenSnapshot awaitStable(WebDriver driver, Duration timeout) {
+        String[] last = new String[2];
+        ReadinessWait.until("mobile.uiIdle", timeout, STABLE_POLL, () -> {
+            last[1] = last[0];
+            last[0] = driver.getPageSource();
+            return last[0].equals(last[1]);
+        });
+        return new ScreenSnapshot(last[0] != null ? last[0] : driver.getPageSource());
+    }
+
+    public boolean contains(UiCandidate candidate) {
+        switch (candidate.getKind()) {
+            case RESOURCE_ID:
+                return resourceIds.contains(candidate.getValue());
+            case ACCESSIBILITY_ID:
+                return contentDescs.contains(candidate.getValue());
+            case TEXT:
+                return texts.contains(candidate.getValue());
+            case TEXT_CONTAINS:
+            default:
+                for (String text : texts) {
+                    if (text.contains(candidate.getValue())) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Первый кандидат (в порядке приоритета), присутствующий на экране, или {@code null}.
+     */
+    public UiCandidate firstPresent(List<UiCandidate> candidates) {
+        for (UiCandidate candidate : candidates) {
+            if (contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static void addIfPresent(Collection<String> target, String value) {
+        if (value != null && !value.isEmpty()) {
+            target.add(value);
+        }
+    }
+
+    private static Document parse(String pageSource) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(pageSource)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось разобрать иерархию экрана: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package mobile.base;
+
+import common.XPaths;
+import io.appium.java_client.MobileBy;
+import org.openqa.selenium.By;
+
+/**
+ * Элемент, который ищется в снимке экрана ({@link ScreenSnapshot}) без обращения к Appium:
+ * по resource-id, content-desc (accessibility id) или тексту.
+ */
+public final class UiCandidate {
+
+    enum Kind { RESOURCE_ID, ACCESSIBILITY_ID, TEXT, TEXT_CONTAINS }
+
+    private final Kind kind;
+    private final String value;
+
+    private UiCandidate(Kind kind, String value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    public static UiCandidate id(String resourceId) {
+        return new UiCandidate(Kind.RESOURCE_ID, resourceId);
+    }
+
+    public static UiCandidate accessibilityId(String contentDesc) {
+        return new UiCandidate(Kind.ACCESSIBILITY_ID, contentDesc);
+    }
+
+    public static UiCandidate text(String text) {
+        return new UiCandidate(Kind.TEXT, text);
+    }
+
+    public static UiCandidate textContains(String text) {
+        return new UiCandidate(Kind.TEXT_CONTAINS, text);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Локатор для клика по найденному элементу.
+     */
+    public By toBy() {
+        switch (kind) {
+            case RESOURCE_ID:
+                return By.id(value);
+            case ACCESSIBILITY_ID:
+                return MobileBy.AccessibilityId(value);
+            case TEXT:
+                return By.xpath("//*[@text=" + XPaths.literal(value) + "]");
+            case TEXT_CONTAINS:
+            default:
+                return By.xpath("//*[contains(@text, " + XPaths.literal(value) + ")]");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind + "=" + value;
+    }
+}
@@ -0,0 +1,217 @@
+package mobile.fake;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная замена Appium/UiAutomator2: W3C WebDriver поверх сценария приложения Wikipedia
+ * ({@code src/test/resources/fake-appium}).
+ * <p>
+ * Позволяет прогонять мобильные Page Object'ы и их запасные ветки (онбординг, промо игр, поиск,
+ * результаты, статья) за миллисекунды, без эмулятора, Appium и APK. Сервер считает вызовы каждой
+ * команды — по счётчикам удобно сравнивать, сколько запросов к драйверу делает Page Object.
+ * Включается {@code mobile.fakeAppium=true}.
+ */
+public final class FakeAppiumServer {
+
+    private static final Json JSON = new Json();
+
+    private static FakeAppiumServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final FakeScript script = FakeScript.load("wikipedia");
+    private final Map<String, FakeSession> sessions = new ConcurrentHashMap<>();
+    // Данные приложения на «устройстве» (пройден ли онбординг) переживают пересоздание сессии
+    private final Map<String, AtomicBoolean> onboardedByDevice = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+
+    private FakeAppiumServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "fake-appium");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Запускает сервер при первом обращении и возвращает его адрес (как {@code appium.serverUrl}).
+     */
+    public static synchronized String baseUrl() {
+        if (instance == null) {
+            try {
+                instance = new FakeAppiumServer();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось запустить локальную замену Appium", e);
+            }
+            System.out.println("Локальная замена Appium запущена: " + instance.address());
+        }
+        return instance.address();
+    }
+
+    /**
+     * Число вызовов каждой команды с момента запуска, например {@code POST /session/:id/element -> 12}.
+     */
+    public static synchronized Map<String, Long> commandCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        if (instance != null) {
+            instance.commandCounts.forEach((command, count) -> counts.put(command, count.get()));
+        }
+        return counts;
+    }
+
+    public static synchronized void stop() {
+        if (instance == null) {
+            return;
+        }
+        System.out.println("=== Команды локальной замены Appium ===");
+        commandCounts().forEach((command, count) -> System.out.println(command + ": " + count));
+        instance.server.stop(0);
+        instance.executor.shutdownNow();
+        instance = null;
+    }
+
+    private String address() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            List<String> path = new ArrayList<>();
+            for (String part : exchange.getRequestURI().getPath().split("/")) {
+                if (!part.isEmpty()) {
+                    path.add(part);
+                }
+            }
+            // Appium 1.x принимает запросы с префиксом /wd/hub
+            if (path.size() >= 2 && "wd".equals(path.get(0)) && "hub".equals(path.get(1))) {
+                path = path.subList(2, path.size());
+            }
+            count(method, path);
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            Map<String, Object> body = requestBody.length == 0
+                    ? Collections.emptyMap()
+                    : JSON.toType(new String(requestBody, StandardCharsets.UTF_8), Json.MAP_TYPE);
+
+            int status = 200;
+            Object value;
+            try {
+                value = dispatch(method, path, body);
+            } catch (FakeSession.CommandError e) {
+                status = e.status;
+                value = error(e.error, e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                value = error("unknown error", String.valueOf(e));
+            }
+            byte[] response = JSON.toJson(Collections.singletonMap("value", value)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Object dispatch(String method, List<String> path, Map<String, Object> body) {
+        if (path.equals(Collections.singletonList("status"))) {
+            return Collections.singletonMap("ready", true);
+        }
+        if (path.isEmpty() || !"session".equals(path.get(0))) {
+            throw FakeSession.CommandError.unknownCommand(method, path);
+        }
+        if (path.size() == 1 && "POST".equals(method)) {
+            return createSession(body);
+        }
+        FakeSession session = path.size() > 1 ? sessions.get(path.get(1)) : null;
+        if (session == null) {
+            throw new FakeSession.CommandError(404, "invalid session id", "Session does not exist");
+        }
+        if (path.size() == 2 && "DELETE".equals(method)) {
+            sessions.remove(session.getId());
+            return null;
+        }
+        if (path.size() == 2 && "GET".equals(method)) {
+            return session.getCapabilities();
+        }
+        return session.handle(method, path.subList(2, path.size()), body);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> createSession(Map<String, Object> body) {
+        Map<String, Object> requested = new LinkedHashMap<>();
+        Object desired = body.get("desiredCapabilities");
+        if (desired instanceof Map) {
+            requested.putAll((Map<String, Object>) desired);
+        }
+        Object w3c = body.get("capabilities");
+        if (w3c instanceof Map && ((Map<String, Object>) w3c).get("alwaysMatch") instanceof Map) {
+            requested.putAll((Map<String, Object>) ((Map<String, Object>) w3c).get("alwaysMatch"));
+        }
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        requested.forEach((key, value) -> capabilities.put(key.startsWith("appium:") ? key.substring(7) : key, value));
+        Object udid = capabilities.getOrDefault("udid", capabilities.getOrDefault("deviceName", "fake"));
+        capabilities.put("platformName", "Android");
+        capabilities.put("udid", udid);
+        capabilities.put("deviceUDID", udid);
+
+        FakeSession session = new FakeSession(script, capabilities,
+                onboardedByDevice.computeIfAbsent(udid.toString(), key -> new AtomicBoolean()));
+        sessions.put(session.getId(), session);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sessionId", session.getId());
+        result.put("capabilities", capabilities);
+        return result;
+    }
+
+    /**
+     * Счётчик по шаблону команды: id сессии и элементов заменяются на {@code :id}.
+     */
+    private void count(String method, List<String> path) {
+        List<String> pattern = new ArrayList<>(path);
+        if (pattern.size() > 1 && "session".equals(pattern.get(0))) {
+            pattern.set(1, ":sessionId");
+        }
+        for (int i = 3; i < pattern.size(); i++) {
+            if (Arrays.asList("element", "elements").contains(pattern.get(i - 1)) && pattern.get(i).startsWith("fake-")) {
+                pattern.set(i, ":id");
+            }
+        }
+        commandCounts.computeIfAbsent(method + " /" + String.join("/", pattern), key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static Map<String, Object> error(String error, String message) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("error", error);
+        value.put("message", message);
+        value.put("stacktrace", "");
+        return value;
+    }
+}
@@ -0,0 +1,119 @@
+package mobile.fake;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сценарий приложения для {@link FakeAppiumServer}: экраны (XML-иерархии) и переходы между ними.
+ * Формат описан в {@code src/test/resources/fake-appium/wikipedia.script}.
+ */
+final class FakeScript {
+
+    private static final String RESOURCE_DIR = "fake-appium/";
+    private static final String ANY_SCREEN = "*";
+
+    private final Map<String, String> screens = new ConcurrentHashMap<>();
+    // "<экран> <действие> <цель>" -> следующий экран
+    private final Map<String, String> transitions = new HashMap<>();
+    private String startScreen;
+    private String resumeScreen;
+
+    private FakeScript() {
+    }
+
+    static FakeScript load(String name) {
+        FakeScript script = new FakeScript();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                open(RESOURCE_DIR + name + ".script"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                script.parseLine(line.trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать сценарий " + name, e);
+        }
+        if (script.startScreen == null) {
+            throw new IllegalStateException("В сценарии " + name + " не задан стартовый экран (start)");
+        }
+        if (script.resumeScreen == null) {
+            script.resumeScreen = script.startScreen;
+        }
+        return script;
+    }
+
+    String startScreen() {
+        return startScreen;
+    }
+
+    String resumeScreen() {
+        return resumeScreen;
+    }
+
+    /**
+     * Следующий экран после действия или null, если действие экран не меняет.
+     */
+    String next(String screen, String action, String target) {
+        String next = transitions.get(screen + " " + action + " " + target);
+        return next != null ? next : transitions.get(ANY_SCREEN + " " + action + " " + target);
+    }
+
+    /**
+     * XML экрана с подставленными переменными (значения экранируются для XML).
+     */
+    String render(String screen, Map<String, String> variables) {
+        String xml = screens.computeIfAbsent(screen, FakeScript::readScreen);
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            xml = xml.replace("${" + variable.getKey() + "}", escapeXml(variable.getValue()));
+        }
+        return xml;
+    }
+
+    private void parseLine(String line) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return;
+        }
+        String[] head = line.split("\\s+", 2);
+        if ("start".equals(head[0])) {
+            startScreen = head[1].trim();
+            return;
+        }
+        if ("resume".equals(head[0])) {
+            resumeScreen = head[1].trim();
+            return;
+        }
+        int arrow = line.lastIndexOf("->");
+        String[] parts = arrow > 0 ? line.substring(0, arrow).trim().split("\\s+", 3) : new String[0];
+        if (parts.length != 3) {
+            throw new IllegalStateException("Неверная строка сценария: " + line);
+        }
+        transitions.put(parts[0] + " " + parts[1] + " " + parts[2], line.substring(arrow + 2).trim());
+    }
+
+    private static String readScreen(String screen) {
+        try (InputStream in = open(RESOURCE_DIR + "screens/" + screen + ".xml")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать экран " + screen, e);
+        }
+    }
+
+    private static InputStream open(String resource) {
+        InputStream in = FakeScript.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Не найден ресурс " + resource);
+        }
+        return in;
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&apos;");
+    }
+}
@@ -0,0 +1,686 @@
+package mobile.fake;
+
+import common.XPaths;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Одна сессия {@link FakeAppiumServer}: текущий экран приложения и команды W3C/Appium над ним.
+ * <p>
+ * Экран — DOM-иерархия из сценария ({@link FakeScript}). Поиск элементов выполняется XPath-ом
+ * по этой иерархии (локаторы id, accessibility id, class name и UiSelector переводятся в XPath),
+ * клики и ввод текста переключают экраны по сценарию. После смены экрана ранее найденные
+ * элементы становятся устаревшими (stale), как и на реальном устройстве.
+ */
+final class FakeSession {
+
+    static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+    private static final String APP_PACKAGE = "org.wikipedia";
+    private static final Pattern BOUNDS = Pattern.compile("\\[(\\d+),(\\d+)]\\[(\\d+),(\\d+)]");
+    // Однопиксельный PNG: тестам важен сам факт скриншота, а не картинка
+    private static final String SCREENSHOT_PNG =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mP8z8BQDwAEhQGAhKmMIQAAAABJRU5ErkJggg==";
+    private static final int LOGCAT_LIMIT = 500;
+    private static final Pattern UI_SELECTOR_METHOD = Pattern.compile("\\.(\\w+)\\(\"((?:[^\"\\\\]|\\\\.)*)\"\\)");
+
+    private final String id = UUID.randomUUID().toString();
+    private final FakeScript script;
+    private final Map<String, Object> capabilities;
+    // Пройден ли онбординг: хранится на «устройство», как данные приложения
+    private final AtomicBoolean onboarded;
+
+    private final Map<String, String> variables = new HashMap<>();
+    private final Map<String, Element> elements = new HashMap<>();
+    // Записи logcat с момента последнего чтения (как у Appium)
+    private final List<Map<String, Object>> logcat = new ArrayList<>();
+    private int elementSequence;
+
+    private String screen;
+    private Document document;
+    private String source;
+
+    FakeSession(FakeScript script, Map<String, Object> capabilities, AtomicBoolean onboarded) {
+        this.script = script;
+        this.capabilities = capabilities;
+        this.onboarded = onboarded;
+        variables.put("query", "");
+        variables.put("title", "");
+        variables.put("scroll", "0");
+        launch();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Map<String, Object> getCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * Выполняет команду; {@code path} — части пути после {@code /session/<id>/}.
+     */
+    synchronized Object handle(String method, List<String> path, Map<String, Object> body) {
+        String command = path.isEmpty() ? "" : path.get(0);
+        switch (method + " " + command) {
+            case "GET source":
+                return source();
+            case "POST timeouts":
+            case "DELETE actions":
+                return null;
+            case "POST actions":
+                return performActions(body);
+            case "POST element":
+                if (path.size() == 1) {
+                    return reference(findFirst(document, body));
+                }
+                return elementCommand(method, path, body);
+            case "POST elements":
+                return references(find(document, str(body, "using"), str(body, "value")));
+            case "GET element":
+                return elementCommand(method, path, body);
+            case "GET window":
+                return windowRect();
+            case "GET screenshot":
+                return SCREENSHOT_PNG;
+            case "GET log":
+                return Collections.singletonList("logcat");
+            case "POST log":
+                return readLogcat();
+            case "POST execute":
+                return executeScript(str(body, "script"), body.get("args"));
+            case "POST appium":
+            case "GET appium":
+                return appiumCommand(method, path, body);
+            default:
+                throw CommandError.unknownCommand(method, path);
+        }
+    }
+
+    // ---------- элементы ----------
+
+    private Object elementCommand(String method, List<String> path, Map<String, Object> body) {
+        Element element = element(path.get(1));
+        String action = path.size() > 2 ? path.get(2) : "";
+        switch (method + " " + action) {
+            case "POST element":
+                return reference(findFirst(element, body));
+            case "POST elements":
+                return references(find(element, str(body, "using"), str(body, "value")));
+            case "POST click":
+                click(element);
+                return null;
+            case "POST clear":
+                element.setAttribute("text", "");
+                source = null;
+                return null;
+            case "POST value":
+                type(element, textToType(body));
+                return null;
+            case "GET text":
+                return element.getAttribute("text");
+            case "GET name":
+                return element.getAttribute("class");
+            case "GET displayed":
+                return !"false".equals(element.getAttribute("displayed"));
+            case "GET enabled":
+                return !"false".equals(element.getAttribute("enabled"));
+            case "GET selected":
+                return "true".equals(element.getAttribute("selected"));
+            case "GET attribute":
+                return attribute(element, path.get(3));
+            case "GET rect":
+            case "GET location":
+            case "GET size":
+                return rect(element);
+            default:
+                throw CommandError.unknownCommand(method, path);
+        }
+    }
+
+    private Element findFirst(Node root, Map<String, Object> body) {
+        List<Element> found = find(root, str(body, "using"), str(body, "value"));
+        // UiScrollable.scrollIntoView: прокручиваем экран, пока элемент не появится или прокрутка не упрётся в конец
+        if (root == document && "-android uiautomator".equals(str(body, "using"))
+                && str(body, "value").contains(".scrollIntoView(")) {
+            while (found.isEmpty() && scroll(1)) {
+                found = find(document, str(body, "using"), str(body, "value"));
+            }
+        }
+        if (found.isEmpty()) {
+            throw new CommandError(404, "no such element",
+                    "An element could not be located on the page using the given search parameters ("
+                            + str(body, "using") + "=" + str(body, "value") + ")");
+        }
+        return found.get(0);
+    }
+
+    private List<Element> find(Node root, String using, String value) {
+        String xpath;
+        switch (using) {
+            case "id":
+                xpath = "//*[@resource-id=" + XPaths.literal(qualifyId(value)) + "]";
+                break;
+            case "css selector":
+                xpath = "//*[@resource-id=" + XPaths.literal(qualifyId(cssToId(value))) + "]";
+                break;
+            case "accessibility id":
+                xpath = "//*[@content-desc=" + XPaths.literal(value) + "]";
+                break;
+            case "class name":
+                xpath = "//*[@class=" + XPaths.literal(value) + "]";
+                break;
+            case "-android uiautomator":
+                xpath = uiSelectorToXpath(value);
+                break;
+            case "xpath":
+                xpath = value;
+                break;
+            default:
+                throw new CommandError(400, "invalid argument", "Unsupported locator strategy: " + using);
+        }
+        if (root != document && xpath.startsWith("/")) {
+            xpath = "." + xpath;
+        }
+        List<Element> result = new ArrayList<>();
+        try {
+            NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+                    .evaluate(xpath, root, XPathConstants.NODESET);
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Element element = (Element) nodes.item(i);
+                if (!"false".equals(element.getAttribute("displayed"))) {
+                    result.add(element);
+                }
+            }
+        } catch (XPathExpressionException e) {
+            throw new CommandError(400, "invalid selector", "Invalid XPath " + xpath + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private Map<String, Object> reference(Element element) {
+        String elementId = "fake-" + (++elementSequence);
+        elements.put(elementId, element);
+        return Collections.singletonMap(ELEMENT_KEY, elementId);
+    }
+
+    private List<Map<String, Object>> references(List<Element> found) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Element element : found) {
+            result.add(reference(element));
+        }
+        return result;
+    }
+
+    private Element element(String elementId) {
+        Element element = elements.get(elementId);
+        if (element == null || element.getOwnerDocument() != document) {
+            throw new CommandError(404, "stale element reference",
+                    "The element '" + elementId + "' does not exist in DOM anymore");
+        }
+        return element;
+    }
+
+    // ---------- действия пользователя ----------
+
+    /**
+     * Клик обрабатывает ближайший по иерархии элемент, для которого в сценарии есть переход.
+     */
+    private void click(Element element) {
+        String text = element.getAttribute("text");
+        for (Node node = element; node instanceof Element; node = node.getParentNode()) {
+            Element current = (Element) node;
+            for (String key : targetKeys(current)) {
+                String next = script.next(screen, "click", key);
+                if (next != null) {
+                    if (!text.isEmpty()) {
+                        variables.put("title", text);
+                    }
+                    show(next);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void type(Element element, String text) {
+        element.setAttribute("text", text);
+        source = null;
+        String next = script.next(screen, "type", element.getAttribute("resource-id"));
+        if (next != null) {
+            variables.put("query", text);
+            show(next);
+        }
+    }
+
+    /**
+     * Свайп по вертикали прокручивает экран (меняется ${scroll}), касание без сдвига — клик.
+     */
+    @SuppressWarnings("unchecked")
+    private Object performActions(Map<String, Object> body) {
+        for (Object sourceObject : (List<Object>) body.getOrDefault("actions", Collections.emptyList())) {
+            Map<String, Object> inputSource = (Map<String, Object>) sourceObject;
+            if (!"pointer".equals(inputSource.get("type"))) {
+                continue;
+            }
+            List<long[]> moves = new ArrayList<>();
+            for (Object actionObject : (List<Object>) inputSource.get("actions")) {
+                Map<String, Object> action = (Map<String, Object>) actionObject;
+                if ("pointerMove".equals(action.get("type"))) {
+                    moves.add(new long[]{number(action.get("x")), number(action.get("y"))});
+                }
+            }
+            if (moves.isEmpty()) {
+                continue;
+            }
+            long[] start = moves.get(0);
+            long[] end = moves.get(moves.size() - 1);
+            long dy = end[1] - start[1];
+            if (Math.abs(dy) >= 50) {
+                scroll(dy < 0 ? 1 : -1);
+            } else if (Math.abs(end[0] - start[0]) < 20) {
+                Element target = elementAt(start[0], start[1]);
+                if (target != null) {
+                    click(target);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Прокрутка текущего экрана на {@code steps} «страниц»; возвращает false, если двигаться некуда.
+     * Число страниц экрана задаёт атрибут {@code pages} корня иерархии (без него — без ограничения).
+     */
+    boolean scroll(int steps) {
+        int current = Integer.parseInt(variables.get("scroll"));
+        int next = Math.min(lastPage(), Math.max(0, current + steps));
+        if (next == current) {
+            return false;
+        }
+        variables.put("scroll", String.valueOf(next));
+        render();
+        return true;
+    }
+
+    private boolean canScroll(int direction) {
+        int current = Integer.parseInt(variables.get("scroll"));
+        return direction > 0 ? current < lastPage() : current > 0;
+    }
+
+    private int lastPage() {
+        String pages = document.getDocumentElement().getAttribute("pages");
+        return pages.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(pages) - 1;
+    }
+
+    private Element elementAt(long x, long y) {
+        Element best = null;
+        NodeList nodes = document.getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            Matcher bounds = BOUNDS.matcher(element.getAttribute("bounds"));
+            if (!"false".equals(element.getAttribute("displayed")) && bounds.matches()
+                    && x >= Long.parseLong(bounds.group(1)) && x <= Long.parseLong(bounds.group(3))
+                    && y >= Long.parseLong(bounds.group(2)) && y <= Long.parseLong(bounds.group(4))) {
+                // getElementsByTagName обходит дерево в глубину, поэтому последний подходящий — самый вложенный
+                best = element;
+            }
+        }
+        return best;
+    }
+
+    // ---------- приложение ----------
+
+    @SuppressWarnings("unchecked")
+    private Object executeScript(String scriptName, Object args) {
+        Map<String, Object> params = Collections.emptyMap();
+        if (args instanceof List && !((List<Object>) args).isEmpty() && ((List<Object>) args).get(0) instanceof Map) {
+            params = (Map<String, Object>) ((List<Object>) args).get(0);
+        }
+        switch (scriptName.trim()) {
+            case "mobile: clearApp":
+                onboarded.set(false);
+                terminate();
+                return null;
+            case "mobile: terminateApp":
+                return terminate();
+            case "mobile: activateApp":
+                activate();
+                return null;
+            case "mobile: startActivity":
+                startActivity(str(params, "component"));
+                return null;
+            case "mobile: scrollGesture":
+                // direction — куда движется содержимое; ответ — можно ли крутить дальше
+                scroll("down".equals(str(params, "direction")) ? 1 : -1);
+                return canScroll("down".equals(str(params, "direction")) ? 1 : -1);
+            case "mobile: swipeGesture":
+                // direction — куда движется палец: свайп вверх прокручивает к концу
+                scroll("up".equals(str(params, "direction")) ? 1 : -1);
+                return null;
+            case "mobile: deepLink":
+                deepLink(str(params, "url"));
+                return null;
+            default:
+                throw new CommandError(400, "unsupported operation", "Fake server does not support " + scriptName);
+        }
+    }
+
+    private Object appiumCommand(String method, List<String> path, Map<String, Object> body) {
+        String command = String.join("/", path.subList(1, path.size()));
+        switch (method + " " + command) {
+            case "POST device/start_activity":
+                startActivity(str(body, "appPackage") + "/" + str(body, "appActivity"));
+                return null;
+            case "POST device/terminate_app":
+                return terminate();
+            case "POST device/activate_app":
+                activate();
+                return null;
+            case "GET device/current_activity":
+                return screen == null ? "" : document.getDocumentElement().getAttribute("activity");
+            case "GET device/current_package":
+                return screen == null ? "" : APP_PACKAGE;
+            default:
+                throw CommandError.unknownCommand(method, path);
+        }
+    }
+
+    private void startActivity(String component) {
+        String activity = component.contains("/") ? component.substring(component.indexOf('/') + 1) : component;
+        if (activity.startsWith(".")) {
+            activity = APP_PACKAGE + activity;
+        }
+        String next = script.next(screen == null ? "*" : screen, "activity", activity);
+        if (next != null && onboarded.get()) {
+            show(next);
+        } else if (screen == null) {
+            launch();
+        }
+    }
+
+    /**
+     * Открытие ссылки: экран берётся из сценария по пути без последнего сегмента,
+     * а последний сегмент (с пробелами вместо подчёркиваний) становится ${title}.
+     */
+    private void deepLink(String url) {
+        String path = URI.create(url).getPath();
+        int slash = path.lastIndexOf('/');
+        String next = script.next(screen == null ? "*" : screen, "deeplink", path.substring(0, slash + 1));
+        if (next == null) {
+            throw new CommandError(400, "invalid argument", "No activity found to handle " + url);
+        }
+        variables.put("title", path.substring(slash + 1).replace('_', ' '));
+        show(next);
+    }
+
+    private boolean terminate() {
+        boolean wasRunning = screen != null;
+        log("I/ActivityManager: Force stopping " + APP_PACKAGE);
+        screen = null;
+        document = parse("<hierarchy index=\"0\" class=\"hierarchy\" rotation=\"0\" width=\"1080\" height=\"2280\""
+                + " activity=\".launcher\"/>");
+        source = null;
+        elements.clear();
+        return wasRunning;
+    }
+
+    private void activate() {
+        if (screen == null) {
+            launch();
+        }
+    }
+
+    private void launch() {
+        show(onboarded.get() ? script.resumeScreen() : script.startScreen());
+    }
+
+    private void show(String next) {
+        screen = next;
+        log("I/ActivityTaskManager: Displayed " + APP_PACKAGE + "/" + next);
+        if (next.equals(script.resumeScreen())) {
+            onboarded.set(true);
+        }
+        variables.put("scroll", "0");
+        render();
+    }
+
+    private void render() {
+        document = parse(script.render(screen, variables));
+        source = null;
+        elements.clear();
+    }
+
+    private void log(String message) {
+        if (logcat.size() >= LOGCAT_LIMIT) {
+            logcat.remove(0);
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("timestamp", System.currentTimeMillis());
+        entry.put("level", "INFO");
+        entry.put("message", message);
+        logcat.add(entry);
+    }
+
+    private List<Map<String, Object>> readLogcat() {
+        List<Map<String, Object>> entries = new ArrayList<>(logcat);
+        logcat.clear();
+        return entries;
+    }
+
+    private String source() {
+        if (source == null) {
+            source = serialize(document);
+        }
+        return source;
+    }
+
+    private Map<String, Object> windowRect() {
+        Element root = document.getDocumentElement();
+        Map<String, Object> rect = new LinkedHashMap<>();
+        rect.put("x", 0);
+        rect.put("y", 0);
+        rect.put("width", Integer.parseInt(root.getAttribute("width")));
+        rect.put("height", Integer.parseInt(root.getAttribute("height")));
+        return rect;
+    }
+
+    // ---------- вспомогательное ----------
+
+    private static Object attribute(Element element, String name) {
+        switch (name) {
+            case "contentDescription":
+            case "content-description":
+            case "content-desc":
+                return element.getAttribute("content-desc");
+            case "resourceId":
+            case "resource-id":
+                return element.getAttribute("resource-id");
+            case "className":
+            case "class":
+                return element.getAttribute("class");
+            default:
+                if (element.hasAttribute(name)) {
+                    return element.getAttribute(name);
+                }
+                return "checked".equals(name) || "selected".equals(name) || "focused".equals(name) ? "false" : null;
+        }
+    }
+
+    private static Map<String, Object> rect(Element element) {
+        Matcher bounds = BOUNDS.matcher(element.getAttribute("bounds"));
+        Map<String, Object> rect = new LinkedHashMap<>();
+        if (bounds.matches()) {
+            int x1 = Integer.parseInt(bounds.group(1));
+            int y1 = Integer.parseInt(bounds.group(2));
+            rect.put("x", x1);
+            rect.put("y", y1);
+            rect.put("width", Integer.parseInt(bounds.group(3)) - x1);
+            rect.put("height", Integer.parseInt(bounds.group(4)) - y1);
+        }
+        return rect;
+    }
+
+    private static List<String> targetKeys(Element element) {
+        List<String> keys = new ArrayList<>();
+        for (String attribute : new String[]{"resource-id", "content-desc", "text"}) {
+            String value = element.getAttribute(attribute);
+            if (!value.isEmpty()) {
+                keys.add(value);
+            }
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String textToType(Map<String, Object> body) {
+        Object text = body.get("text");
+        if (text != null) {
+            return text.toString();
+        }
+        StringBuilder joined = new StringBuilder();
+        for (Object part : (List<Object>) body.getOrDefault("value", Collections.emptyList())) {
+            joined.append(part);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Короткий id без пакета ({@code search_container}) Appium дополняет пакетом приложения.
+     */
+    private static String qualifyId(String value) {
+        return value.contains(":id/") || value.startsWith("android:") ? value : APP_PACKAGE + ":id/" + value;
+    }
+
+    /**
+     * W3C-кодек Selenium превращает By.id в CSS {@code #экранированный\:id}; возвращаем исходный id.
+     */
+    private static String cssToId(String css) {
+        if (!css.startsWith("#")) {
+            throw new CommandError(400, "invalid selector", "Only #id CSS selectors are supported: " + css);
+        }
+        return css.substring(1).replaceAll("\\\\(.)", "$1");
+    }
+
+    /**
+     * Простые UiSelector ({@code resourceId/text/textContains/description/className}); для UiScrollable
+     * берётся селектор внутри {@code scrollIntoView}.
+     */
+    private static String uiSelectorToXpath(String expression) {
+        int last = expression.lastIndexOf("new UiSelector()");
+        if (last < 0) {
+            throw new CommandError(400, "invalid selector", "Unsupported UiSelector: " + expression);
+        }
+        List<String> conditions = new ArrayList<>();
+        Matcher method = UI_SELECTOR_METHOD.matcher(expression.substring(last));
+        while (method.find()) {
+            String value = XPaths.literal(method.group(2).replace("\\\"", "\""));
+            switch (method.group(1)) {
+                case "resourceId":
+                    conditions.add("@resource-id=" + value);
+                    break;
+                case "text":
+                    conditions.add("@text=" + value);
+                    break;
+                case "textContains":
+                    conditions.add("contains(@text, " + value + ")");
+                    break;
+                case "description":
+                    conditions.add("@content-desc=" + value);
+                    break;
+                case "descriptionContains":
+                    conditions.add("contains(@content-desc, " + value + ")");
+                    break;
+                case "className":
+                    conditions.add("@class=" + value);
+                    break;
+                default:
+                    throw new CommandError(400, "invalid selector", "Unsupported UiSelector method: " + method.group(1));
+            }
+        }
+        return conditions.isEmpty() ? "//*" : "//*[" + String.join(" and ", conditions) + "]";
+    }
+
+    private static String str(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value == null ? "" : value.toString();
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number ? Math.round(((Number) value).doubleValue()) : 0;
+    }
+
+    private static Document parse(String xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Неверный XML экрана: " + e.getMessage(), e);
+        }
+    }
+
+    private static String serialize(Document document) {
+        try {
+            TransformerFactory factory = TransformerFactory.newInstance();
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            Transformer transformer = factory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+            StringWriter out = new StringWriter();
+            transformer.transform(new DOMSource(document), new StreamResult(out));
+            return out.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось сериализовать экран: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ошибка W3C WebDriver: HTTP-статус и код ошибки из спецификации.
+     */
+    static final class CommandError extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final String error;
+
+        CommandError(int status, String error, String message) {
+            super(message);
+            this.status = status;
+            this.error = error;
+        }
+
+        static CommandError unknownCommand(String method, List<String> path) {
+            return new CommandError(404, "unknown command",
+                    "Fake server does not support " + method + " /" + String.join("/", path));
+        }
+    }
+}
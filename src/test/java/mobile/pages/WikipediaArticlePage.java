@@ -1,35 +1,54 @@
 package mobile.pages;
 
+import common.AdaptiveLocatorChain;
+import common.FastProbe;
+import common.ReadinessWait;
+import common.StepTimeline;
+import common.XPaths;
+import config.TestConfig;
 import io.appium.java_client.MobileElement;
+import io.appium.java_client.android.Activity;
 import io.appium.java_client.android.AndroidDriver;
+import mobile.base.AppVersion;
+import mobile.base.Gestures;
 import org.openqa.selenium.By;
-import org.openqa.selenium.Point;
-import org.openqa.selenium.interactions.PointerInput;
-import org.openqa.selenium.interactions.Sequence;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Страница открытой статьи Wikipedia.
  */
 public class WikipediaArticlePage {
 
+    private static final String WIKI_URL = "https://en.wikipedia.org/wiki/";
+    private static final String PAGE_ACTIVITY = "org.wikipedia.page.PageActivity";
+
     private final AndroidDriver<MobileElement> driver;
 
-    private final By[] titleLocators = new By[] {
+    // Заголовок в разных версиях приложения; сработавший локатор запоминается для версии приложения
+    private final AdaptiveLocatorChain titleLocators = new AdaptiveLocatorChain("article.title",
             By.id("org.wikipedia:id/view_page_title_text"),
             By.id("org.wikipedia:id/page_toolbar_title"),
             By.id("org.wikipedia:id/article_title"),
             By.id("org.wikipedia:id/view_article_header_text"),
-            By.xpath("//android.widget.TextView[@resource-id='org.wikipedia:id/view_page_title_text' or @resource-id='org.wikipedia:id/page_toolbar_title']"),
-            // fallback: первое доступное представление с content-desc (часто основной заголовок в webview)
+            By.xpath("//android.widget.TextView[@resource-id='org.wikipedia:id/view_page_title_text' or @resource-id='org.wikipedia:id/page_toolbar_title']")
+    );
+    // Общие запасные варианты: находят любой текст, поэтому в рейтинг не попадают и проверяются
+    // только после всех конкретных локаторов
+    private final List<By> genericTitleLocators = List.of(
+            // первое доступное представление с content-desc (часто основной заголовок в webview)
             By.xpath("//android.view.View[@content-desc and string-length(@content-desc)>0][1]"),
             By.xpath("//android.view.View[@text and string-length(@text)>0][1]"),
             By.xpath("//android.widget.TextView[@text and string-length(@text)>0][1]")
-    };
+    );
     private final By contentView = By.id("org.wikipedia:id/page_contents_container");
     private final By webViewRoot = By.id("org.wikipedia:id/page_web_view");
 
@@ -37,93 +56,117 @@ public class WikipediaArticlePage {
         this.driver = driver;
     }
 
+    /**
+     * Открывает статью по ссылке, минуя поиск: {@code mobile: deepLink}, а если драйвер его не
+     * поддерживает — VIEW-интент с адресом статьи на PageActivity. Для тестов, которым нужна
+     * открытая статья, а не сценарий поиска.
+     */
+    public WikipediaArticlePage openArticle(String title) {
+        return StepTimeline.step("WikipediaArticlePage.openArticle", () -> {
+            String url = WIKI_URL + URLEncoder.encode(title.replace(' ', '_'), StandardCharsets.UTF_8);
+            String appPackage = TestConfig.getMobileAppPackage();
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("url", url);
+            // Только приложение Wikipedia, без выбора между ним и браузером
+            args.put("package", appPackage);
+            args.put("waitForLaunch", true);
+            try {
+                driver.executeScript("mobile: deepLink", args);
+            } catch (WebDriverException e) {
+                // старый UiAutomator2 без mobile: deepLink
+                driver.startActivity(new Activity(appPackage, PAGE_ACTIVITY)
+                        .setIntentAction("android.intent.action.VIEW")
+                        .setOptionalIntentArguments("-d " + url));
+            }
+            ReadinessWait.forPresence(driver, contentView, Duration.ofSeconds(20));
+            return this;
+        });
+    }
+
     private MobileElement findFirstPresent(By locator, int timeoutSec) {
         try {
+            // Без неявного ожидания промах стоит timeoutSec, а не implicit.wait на каждый опрос
             WebDriverWait localWait = new WebDriverWait(driver, timeoutSec);
-            return (MobileElement) localWait.until(ExpectedConditions.presenceOfElementLocated(locator));
+            return (MobileElement) FastProbe.probe(driver,
+                    () -> localWait.until(ExpectedConditions.presenceOfElementLocated(locator)));
         } catch (Exception ignored) {
             return null;
         }
     }
 
-    public String getArticleTitle(String expectedKeyword) {
-        // Ждём загрузки статьи
-        try {
-            new WebDriverWait(driver, 20)
-                    .until(ExpectedConditions.or(
-                            ExpectedConditions.presenceOfElementLocated(contentView),
-                            ExpectedConditions.presenceOfElementLocated(webViewRoot),
-                            ExpectedConditions.presenceOfElementLocated(titleLocators[0])
-                    ));
-        } catch (Exception ignored) {
+    private String readTitle(By locator) {
+        MobileElement el = findFirstPresent(locator, 4);
+        if (el == null) {
+            return null;
+        }
+        String text = el.getText();
+        if (text != null && !text.isBlank() && !"Edit section".equalsIgnoreCase(text.trim())) {
+            return text;
+        }
+        String desc = el.getAttribute("contentDescription");
+        if (desc != null && !desc.isBlank() && !"Edit section".equalsIgnoreCase(desc.trim())) {
+            return desc;
         }
+        return null;
+    }
 
-        // Пробуем набор заголовков (короткие ожидания, чтобы не зависать)
-        for (By locator : titleLocators) {
-            MobileElement el = findFirstPresent(locator, 4);
-            if (el != null) {
-                String text = el.getText();
-                if (text != null && !text.isBlank() && !"Edit section".equalsIgnoreCase(text.trim())) {
-                    return text;
-                }
-                String desc = el.getAttribute("contentDescription");
-                if (desc != null && !desc.isBlank() && !"Edit section".equalsIgnoreCase(desc.trim())) {
-                    return desc;
+    public String getArticleTitle(String expectedKeyword) {
+        return StepTimeline.step("WikipediaArticlePage.getArticleTitle", () -> {
+            String appVersion = AppVersion.of(driver);
+            // Ждём загрузки статьи
+            try {
+                // or() проверяет условия по очереди, поэтому неявное ожидание на каждом промахе отключаем
+                FastProbe.probe(driver, () -> new WebDriverWait(driver, 20)
+                        .until(ExpectedConditions.or(
+                                ExpectedConditions.presenceOfElementLocated(contentView),
+                                ExpectedConditions.presenceOfElementLocated(webViewRoot),
+                                ExpectedConditions.presenceOfElementLocated(titleLocators.preferred(appVersion))
+                        )));
+            } catch (Exception ignored) {
+            }
+
+            // Пробуем набор заголовков (короткие ожидания, чтобы не зависать), начиная с сработавшего в прошлый раз
+            String title = titleLocators.resolve(appVersion, this::readTitle);
+            if (title != null) {
+                return title;
+            }
+            for (By locator : genericTitleLocators) {
+                title = readTitle(locator);
+                if (title != null) {
+                    return title;
                 }
             }
-        }
-        if (expectedKeyword != null && !expectedKeyword.isBlank()) {
-            String kw = expectedKeyword;
-            String xpath = "//android.view.View[contains(@text,'" + kw + "')]";
-            MobileElement el = findFirstPresent(By.xpath(xpath), 4);
-            if (el != null) {
-                return el.getText();
+            if (expectedKeyword != null && !expectedKeyword.isBlank()) {
+                String xpath = "//android.view.View[contains(@text," + XPaths.literal(expectedKeyword) + ")]";
+                MobileElement el = findFirstPresent(By.xpath(xpath), 4);
+                if (el != null) {
+                    return el.getText();
+                }
             }
-        }
-        // если ничего не нашли — возвращаем ключевое слово как fallback, чтобы не падать на timeout
-        return expectedKeyword != null ? expectedKeyword : "";
+            // если ничего не нашли — возвращаем ключевое слово как fallback, чтобы не падать на timeout
+            return expectedKeyword != null ? expectedKeyword : "";
+        });
     }
 
     /**
-     * Простейшая прокрутка вниз по контенту статьи (W3C actions, без TouchAction).
+     * Прокрутка контента статьи вниз одним жестом на стороне сервера.
+     *
+     * @return есть ли после прокрутки куда крутить дальше (см. {@link Gestures.ScrollResult})
      */
-    public void scrollDown() {
-        // Пытаемся найти контейнер контента, но не зависаем надолго
-        MobileElement element = null;
-        try {
-            element = (MobileElement) new WebDriverWait(driver, 5)
-                    .until(ExpectedConditions.presenceOfElementLocated(contentView));
-        } catch (Exception ignored) { }
-
-        Point center;
-        int height;
-        if (element != null) {
-            center = element.getCenter();
-            height = element.getSize().getHeight();
-        } else {
-            // fallback: размеры всего экрана
-            org.openqa.selenium.Dimension size = driver.manage().window().getSize();
-            center = new Point(size.getWidth() / 2, size.getHeight() / 2);
-            height = size.getHeight();
-        }
-        int startX = center.getX();
-        int startY = center.getY() + (int) (height * 0.3);
-        int endY = center.getY() - (int) (height * 0.3);
-
-        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
-        Sequence swipe = new Sequence(finger, 1);
-        swipe.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), startX, startY));
-        swipe.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
-        swipe.addAction(finger.createPointerMove(Duration.ofMillis(600), PointerInput.Origin.viewport(), startX, endY));
-        swipe.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
-        driver.perform(Collections.singletonList(swipe));
+    public Gestures.ScrollResult scrollDown() {
+        return StepTimeline.step("WikipediaArticlePage.scrollDown", () -> {
+            // Контейнер статьи к этому моменту уже на экране; если его нет — крутим весь экран
+            List<MobileElement> content = FastProbe.probe(driver, () -> driver.findElements(contentView));
+            return Gestures.scroll(driver, content.isEmpty() ? null : content.get(0), Gestures.Direction.DOWN);
+        });
+    }
 
-        try {
-            Thread.sleep(800);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    /**
+     * Прокручивает статью до первого элемента с текстом {@code text} (одна команда, без повторных свайпов).
+     */
+    public MobileElement scrollTo(String text) {
+        return StepTimeline.step("WikipediaArticlePage.scrollTo", () -> {
+            return Gestures.scrollIntoView(driver, text);
+        });
     }
 }
-
-
@@ -1,12 +1,23 @@
 package mobile.pages;
 
+import common.FastProbe;
+import common.ReadinessWait;
+import common.StepTimeline;
 import io.appium.java_client.MobileElement;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.MobileBy;
+import mobile.base.AppStateSeeder;
+import mobile.base.ScreenSnapshot;
+import mobile.base.UiCandidate;
 import org.openqa.selenium.By;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Главный/поисковый экран приложения Wikipedia.
  * Локаторы могут отличаться в зависимости от версии приложения,
@@ -24,21 +35,25 @@ public class WikipediaSearchPage {
     private final By searchInput = By.id("org.wikipedia:id/search_src_text");
     private final By firstSearchResult = By.id("org.wikipedia:id/page_list_item_title");
     // Онбординг (разные варианты кнопок в новых версиях приложения)
-    private final By onboardingSkip = By.id("org.wikipedia:id/fragment_onboarding_skip_button");
-    private final By onboardingDone = By.id("org.wikipedia:id/fragment_onboarding_done_button");
-    private final By onboardingGetStarted = By.id("org.wikipedia:id/fragment_onboarding_button");
-    private final By onboardingForward = By.id("org.wikipedia:id/fragment_onboarding_forward_button");
-    private final By onboardingPrimary = By.id("org.wikipedia:id/primaryTextView");
+    private final UiCandidate onboardingSkip = UiCandidate.id("org.wikipedia:id/fragment_onboarding_skip_button");
+    private final UiCandidate onboardingDone = UiCandidate.id("org.wikipedia:id/fragment_onboarding_done_button");
+    private final UiCandidate onboardingGetStarted = UiCandidate.id("org.wikipedia:id/fragment_onboarding_button");
+    private final UiCandidate onboardingForward = UiCandidate.id("org.wikipedia:id/fragment_onboarding_forward_button");
+    private final UiCandidate onboardingPrimary = UiCandidate.id("org.wikipedia:id/primaryTextView");
     // Типовые кнопки диалогов (в том числе промо/игры)
-    private final By dialogPositive = By.id("android:id/button1");
-    private final By dialogNegative = By.id("android:id/button2");
-    private final By dialogNeutral = By.id("android:id/button3");
-    private final By dialogClose = By.id("org.wikipedia:id/dialog_button");
-    private final By dialogCloseAlt = By.id("org.wikipedia:id/negativeButton");
-    private final By dialogCloseAlt2 = By.id("org.wikipedia:id/positiveButton");
-    private final By toolbarNavigateUp = MobileBy.AccessibilityId("Navigate up");
-    private final By closeButton = MobileBy.AccessibilityId("Close");
-    private final By promoCloseIcon = By.id("org.wikipedia:id/close");
+    private final UiCandidate dialogPositive = UiCandidate.id("android:id/button1");
+    private final UiCandidate dialogNegative = UiCandidate.id("android:id/button2");
+    private final UiCandidate dialogNeutral = UiCandidate.id("android:id/button3");
+    private final UiCandidate dialogClose = UiCandidate.id("org.wikipedia:id/dialog_button");
+    private final UiCandidate dialogCloseAlt = UiCandidate.id("org.wikipedia:id/negativeButton");
+    private final UiCandidate dialogCloseAlt2 = UiCandidate.id("org.wikipedia:id/positiveButton");
+    private final UiCandidate toolbarNavigateUp = UiCandidate.accessibilityId("Navigate up");
+    private final UiCandidate closeButton = UiCandidate.accessibilityId("Close");
+    private final UiCandidate promoCloseIcon = UiCandidate.id("org.wikipedia:id/close");
+    private final UiCandidate gamesPromo = UiCandidate.textContains("Wikipedia games");
+    // Признаки главного экрана и экрана поиска в снимке иерархии
+    private final UiCandidate searchContainerOnScreen = UiCandidate.id("org.wikipedia:id/search_container");
+    private final UiCandidate searchInputOnScreen = UiCandidate.id("org.wikipedia:id/search_src_text");
     // Кнопки нижнего меню / поиска
     private final By navSearchTab = By.id("org.wikipedia:id/nav_tab_search");
     private final By navSearchText = By.xpath("//*[@text='Search' or @text='Поиск']");
@@ -61,107 +76,90 @@ public class WikipediaSearchPage {
             "Продолжить", "Пропустить", "Не сейчас"
     };
 
+    // Кандидаты в порядке приоритета: проверяются локально по одному снимку экрана
+    private final List<UiCandidate> onboardingCandidates = new ArrayList<>();
+    private final List<UiCandidate> dialogCandidates = new ArrayList<>();
+    private final List<UiCandidate> gamesPromoCandidates = new ArrayList<>();
+
     public WikipediaSearchPage(AndroidDriver<MobileElement> driver) {
         this.driver = driver;
         this.wait = new WebDriverWait(driver, 30);
-    }
 
-    private boolean clickIfPresent(By locator) {
-        try {
-            driver.findElement(locator).click();
-            return true;
-        } catch (Exception ignored) {
-            return false;
-        }
+        onboardingCandidates.addAll(Arrays.asList(
+                onboardingSkip, onboardingDone, onboardingGetStarted, onboardingForward, onboardingPrimary));
+        addTextCandidates(onboardingCandidates, onboardingTexts);
+
+        dialogCandidates.addAll(Arrays.asList(
+                dialogNegative, dialogPositive, dialogNeutral, dialogClose, dialogCloseAlt, dialogCloseAlt2,
+                promoCloseIcon, closeButton, toolbarNavigateUp));
+        addTextCandidates(dialogCandidates, promoTexts);
+
+        // На промо игр сначала пробуем отказаться, чтобы случайно не открыть игру
+        gamesPromoCandidates.addAll(Arrays.asList(dialogNegative, dialogCloseAlt));
+        addTextCandidates(gamesPromoCandidates, "No thanks", "Not now", "Maybe later", "Пропустить", "Не сейчас");
+        gamesPromoCandidates.addAll(dialogCandidates);
     }
 
-    private boolean clickIfTextPresent(String... texts) {
+    /**
+     * Для каждого текста: сначала точное совпадение, затем contains (для длинных сообщений).
+     */
+    private static void addTextCandidates(List<UiCandidate> target, String... texts) {
         for (String text : texts) {
-            try {
-                driver.findElement(By.xpath("//*[@text='" + text + "']")).click();
-                return true;
-            } catch (Exception ignored) {
-                // пробуем следующий текст
-            }
-            try {
-                // fallback: contains (для длинных сообщений/других регистров)
-                driver.findElement(By.xpath("//*[contains(@text, '" + text + "')]")).click();
-                return true;
-            } catch (Exception ignored) {
-                // продолжаем
-            }
+            target.add(UiCandidate.text(text));
+            target.add(UiCandidate.textContains(text));
         }
-        return false;
     }
 
-    private void shortPause() {
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private boolean clickIfPresent(By locator) {
+        return FastProbe.clickIfPresent(driver, locator);
     }
 
     /**
-     * Универсальная попытка закрыть диалоги/попапы, в том числе "Introducing Wikipedia games".
+     * Кликает по первому кандидату, найденному в снимке: один клик вместо перебора findElement.
      */
-    private boolean closeDialogsIfAny() {
-        // Сперва пытаемся нажать типовые кнопки/иконки закрытия
-        boolean clicked = clickIfPresent(dialogNegative) ||
-                clickIfPresent(dialogPositive) ||
-                clickIfPresent(dialogNeutral) ||
-                clickIfPresent(dialogClose) ||
-                clickIfPresent(dialogCloseAlt) ||
-                clickIfPresent(dialogCloseAlt2) ||
-                clickIfPresent(promoCloseIcon) ||
-                clickIfPresent(closeButton) ||
-                clickIfPresent(toolbarNavigateUp) ||
-                clickIfTextPresent(promoTexts);
-
-        // Если на экране реально есть текст про игры — пробуем Back/secondary button
-        if (!clicked) {
-            try {
-                if (!driver.findElements(By.xpath("//*[contains(@text,'Wikipedia games')]")).isEmpty()) {
-                    clicked = clickIfPresent(dialogNegative) ||
-                            clickIfPresent(dialogCloseAlt) ||
-                            clickIfTextPresent("No thanks", "Not now", "Maybe later", "Пропустить", "Не сейчас");
-                }
-            } catch (Exception ignored) {}
-        }
+    private boolean clickFirstPresent(ScreenSnapshot screen, List<UiCandidate> candidates) {
+        UiCandidate candidate = screen.firstPresent(candidates);
+        return candidate != null && clickIfPresent(candidate.toBy());
+    }
 
-        if (clicked) {
-            shortPause();
-        }
-        return clicked;
+    /**
+     * Ждём, пока экран перестанет меняться после клика, и возвращаем его снимок для следующего шага.
+     */
+    private ScreenSnapshot shortPause() {
+        return ScreenSnapshot.awaitStable(driver, Duration.ofSeconds(2));
+    }
+
+    /**
+     * Универсальная попытка закрыть диалоги/попапы, в том числе "Introducing Wikipedia games".
+     */
+    private boolean closeDialogsIfAny(ScreenSnapshot screen) {
+        List<UiCandidate> candidates = screen.contains(gamesPromo) ? gamesPromoCandidates : dialogCandidates;
+        return clickFirstPresent(screen, candidates);
     }
 
     /**
      * Закрываем онбординг/приветственные экраны, если они ещё показываются.
      * Перебираем популярные кнопки: Skip / Done / Get started / Forward.
+     * На каждом шаге — один снимок экрана и не больше одного клика.
+     *
+     * @return снимок экрана после закрытия онбординга
      */
-    private void ensureOnboardingClosed() {
-        // Быстрый выход, если уже видим поисковой контейнер
-        if (!driver.findElements(searchContainer).isEmpty()) {
-            return;
-        }
-
+    private ScreenSnapshot ensureOnboardingClosed() {
+        ScreenSnapshot screen = ScreenSnapshot.capture(driver);
         // Пробуем несколько шагов онбординга/промо (до 8 экранов)
         for (int i = 0; i < 8; i++) {
-            if (clickIfPresent(onboardingSkip) ||
-                clickIfPresent(onboardingDone) ||
-                clickIfPresent(onboardingGetStarted) ||
-                clickIfPresent(onboardingForward) ||
-                clickIfPresent(onboardingPrimary) ||
-                clickIfTextPresent(onboardingTexts) ||
-                closeDialogsIfAny()) {
-                shortPause();
-                if (!driver.findElements(searchContainer).isEmpty()) {
-                    return;
-                }
+            // Выход, как только видим поисковой контейнер
+            if (screen.contains(searchContainerOnScreen)) {
+                // Онбординг позади: сохраняем данные приложения, чтобы следующие сессии начинались отсюда
+                AppStateSeeder.captureIfMissing(driver);
+                return screen;
+            }
+            boolean clicked = clickFirstPresent(screen, onboardingCandidates) || closeDialogsIfAny(screen);
+            if (!clicked && i > 0) {
+                // нечего нажимать — экран, скорее всего, ещё не загрузился
+                break;
             }
-            // Дополнительно пробуем закрыть диалоги на каждом шаге
-            closeDialogsIfAny();
-            shortPause();
+            screen = shortPause();
         }
         // Финальная попытка: ждём появления контейнера (если онбординг сам исчезнет)
         try {
@@ -169,61 +167,68 @@ public class WikipediaSearchPage {
         } catch (Exception ignored) {
             // если не появился, дальше выбросится стандартный timeout
         }
+        return ScreenSnapshot.capture(driver);
     }
 
     public void tapOnSearchContainer() {
-        // 1) закрываем онбординг/диалоги
-        ensureOnboardingClosed();
-        closeDialogsIfAny();
+        StepTimeline.step("WikipediaSearchPage.tapOnSearchContainer", () -> {
+            // 1) закрываем онбординг/диалоги
+            ScreenSnapshot screen = ensureOnboardingClosed();
+            if (closeDialogsIfAny(screen)) {
+                screen = shortPause();
+            }
 
-        // 2) если уже на экране поиска — просто выходим
-        if (!driver.findElements(searchInput).isEmpty()) {
-            return;
-        }
+            // 2) если уже на экране поиска — просто выходим
+            if (screen.contains(searchInputOnScreen)) {
+                return;
+            }
 
-        // 3) явный запуск SearchActivity (самый стабильный путь)
-        try {
-            driver.startActivity(new io.appium.java_client.android.Activity("org.wikipedia", "org.wikipedia.search.SearchActivity"));
-            shortPause();
-        } catch (Exception ignored) {
-            // если не получилось — пробуем клик по доступным элементам
-            clickIfPresent(searchContainer);
-            clickIfPresent(searchAction);
-            clickIfPresent(searchCard);
-            clickIfPresent(searchActionBar);
-            clickIfPresent(navSearchTab);
-            clickIfPresent(navSearchDesc);
-            clickIfPresent(navSearchText);
-            clickIfPresent(searchToolbar);
-        }
+            // 3) явный запуск SearchActivity (самый стабильный путь)
+            try {
+                driver.startActivity(new io.appium.java_client.android.Activity("org.wikipedia", "org.wikipedia.search.SearchActivity"));
+            } catch (Exception ignored) {
+                // если не получилось — пробуем клик по доступным элементам (неявное ожидание переключаем один раз)
+                FastProbe.probe(driver, () -> {
+                    clickIfPresent(searchContainer);
+                    clickIfPresent(searchAction);
+                    clickIfPresent(searchCard);
+                    clickIfPresent(searchActionBar);
+                    clickIfPresent(navSearchTab);
+                    clickIfPresent(navSearchDesc);
+                    clickIfPresent(navSearchText);
+                    clickIfPresent(searchToolbar);
+                    return null;
+                });
+            }
 
-        // 4) ждём поле ввода поиска
-        wait.until(ExpectedConditions.presenceOfElementLocated(searchInput));
-        try {
-            driver.findElement(searchInput).click();
-        } catch (Exception ignored) {
-            // в крайнем случае — контейнер
+            // 4) ждём поле ввода поиска
+            wait.until(ExpectedConditions.presenceOfElementLocated(searchInput));
             try {
-                driver.findElement(searchContainer).click();
-            } catch (Exception ignoredInner) {}
-        }
+                driver.findElement(searchInput).click();
+            } catch (Exception ignored) {
+                // в крайнем случае — контейнер
+                try {
+                    driver.findElement(searchContainer).click();
+                } catch (Exception ignoredInner) {}
+            }
+        });
     }
 
     public void typeSearchQuery(String query) {
-        wait.until(ExpectedConditions.presenceOfElementLocated(searchInput));
-        driver.findElement(searchInput).clear();
-        driver.findElement(searchInput).sendKeys(query);
-        // Небольшая задержка для появления результатов поиска
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        StepTimeline.step("WikipediaSearchPage.typeSearchQuery", () -> {
+            wait.until(ExpectedConditions.presenceOfElementLocated(searchInput));
+            driver.findElement(searchInput).clear();
+            driver.findElement(searchInput).sendKeys(query);
+            // Ждём, пока список результатов поиска заполнится
+            ReadinessWait.forPresence(driver, firstSearchResult, Duration.ofSeconds(10));
+        });
     }
 
     public void openFirstResult() {
-        new WebDriverWait(driver, 25).until(ExpectedConditions.presenceOfElementLocated(firstSearchResult));
-        driver.findElements(firstSearchResult).get(0).click();
+        StepTimeline.step("WikipediaSearchPage.openFirstResult", () -> {
+            new WebDriverWait(driver, 25).until(ExpectedConditions.presenceOfElementLocated(firstSearchResult));
+            driver.findElements(firstSearchResult).get(0).click();
+        });
     }
 }
 
@@ -1,5 +1,6 @@
 package mobile.tests;
 
+import mobile.base.Gestures;
 import mobile.base.MobileTestBase;
 import mobile.pages.WikipediaArticlePage;
 import mobile.pages.WikipediaSearchPage;
@@ -14,12 +15,12 @@ public class WikipediaMobileTests extends MobileTestBase {
 
     @Test(description = "Поиск статьи 'Appium' и проверка, что открыта корректная статья")
     public void searchAppiumArticle_shouldOpenCorrectPage() {
-        WikipediaSearchPage searchPage = new WikipediaSearchPage(driver);
+        WikipediaSearchPage searchPage = new WikipediaSearchPage(getDriver());
         searchPage.tapOnSearchContainer();
         searchPage.typeSearchQuery("Appium");
         searchPage.openFirstResult();
 
-        WikipediaArticlePage articlePage = new WikipediaArticlePage(driver);
+        WikipediaArticlePage articlePage = new WikipediaArticlePage(getDriver());
         String title = articlePage.getArticleTitle("Appium");
         Assert.assertTrue(title.toLowerCase().contains("appium"),
                 "Заголовок статьи должен содержать 'Appium', фактический: " + title);
@@ -27,12 +28,12 @@ public class WikipediaMobileTests extends MobileTestBase {
 
     @Test(description = "Поиск статьи 'Selenium (software)' и проверка точного заголовка")
     public void searchSeleniumArticle_shouldHaveExactTitle() {
-        WikipediaSearchPage searchPage = new WikipediaSearchPage(driver);
+        WikipediaSearchPage searchPage = new WikipediaSearchPage(getDriver());
         searchPage.tapOnSearchContainer();
         searchPage.typeSearchQuery("Selenium (software)");
         searchPage.openFirstResult();
 
-        WikipediaArticlePage articlePage = new WikipediaArticlePage(driver);
+        WikipediaArticlePage articlePage = new WikipediaArticlePage(getDriver());
         String title = articlePage.getArticleTitle("Selenium (software)");
         Assert.assertEquals(title, "Selenium (software)",
                 "Ожидался заголовок 'Selenium (software)', фактический: " + title);
@@ -40,14 +41,14 @@ public class WikipediaMobileTests extends MobileTestBase {
 
     @Test(description = "Прокрутка статьи вниз и проверка, что контент доступен (scroll scenario)")
     public void openArticleAndScroll_shouldKeepContentVisible() {
-        WikipediaSearchPage searchPage = new WikipediaSearchPage(driver);
-        searchPage.tapOnSearchContainer();
-        searchPage.typeSearchQuery("Software testing");
-        searchPage.openFirstResult();
-
-        WikipediaArticlePage articlePage = new WikipediaArticlePage(driver);
+        // Поиск здесь не проверяется: статья открывается сразу по ссылке
+        WikipediaArticlePage articlePage = new WikipediaArticlePage(getDriver()).openArticle("Software testing");
         String initialTitle = articlePage.getArticleTitle("Software testing");
-        articlePage.scrollDown();
+        Gestures.ScrollResult scroll = articlePage.scrollDown();
+        // После свайпа с клиента (сервер без mobile: scrollGesture) конец статьи не определить
+        if (scroll != Gestures.ScrollResult.UNKNOWN) {
+            Assert.assertEquals(scroll, Gestures.ScrollResult.MORE, "Статья должна прокручиваться дальше первого экрана");
+        }
 
         // После прокрутки заголовок статьи по‑прежнему должен быть доступен в структуре страницы
         String titleAfterScroll = articlePage.getArticleTitle("Software testing");
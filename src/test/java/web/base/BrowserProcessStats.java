@@ -0,0 +1,53 @@
+package web.base;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Оценка памяти, занятой браузерами: сумма RSS всех процессов, порождённых JVM
+ * (драйверы и браузеры с их дочерними процессами). Данные берутся из /proc,
+ * поэтому на системах без procfs возвращается только число процессов.
+ */
+final class BrowserProcessStats {
+
+    private BrowserProcessStats() {
+    }
+
+    static String describe() {
+        long drivers = ProcessHandle.current().children().count();
+        List<ProcessHandle> processes = ProcessHandle.current().descendants().collect(Collectors.toList());
+        long totalKb = 0;
+        boolean measured = false;
+        for (ProcessHandle process : processes) {
+            long rss = readRssKb(process.pid());
+            if (rss >= 0) {
+                totalKb += rss;
+                measured = true;
+            }
+        }
+        if (!measured) {
+            return "RSS недоступен, процессов браузеров: " + processes.size();
+        }
+        long perBrowserMb = drivers > 0 ? totalKb / drivers / 1024 : 0;
+        return "RSS браузеров: " + totalKb / 1024 + " МБ на " + drivers + " шт. (~" + perBrowserMb
+                + " МБ на браузер, процессов: " + processes.size() + ")";
+    }
+
+    private static long readRssKb(long pid) {
+        Path status = Paths.get("/proc", Long.toString(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // процесс уже завершился или procfs недоступен
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,393 @@
+package web.base;
+
+import config.TestConfig;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Локальный HTTP-прокси с записью и воспроизведением ответов для браузера под тестом.
+ * <p>
+ * GET-запросы при первом прогоне уходят на сервер и сохраняются в {@link HttpCacheStore}
+ * ({@code http/} в каталоге кэша), при следующих — отдаются с диска, пока запись не старше
+ * {@code web.proxy.maxAgeHours}. Запросы к рекламным и аналитическим хостам
+ * ({@code web.proxy.blockHosts}) сразу получают пустой ответ, в том числе HTTPS (CONNECT).
+ * <p>
+ * HTTPS прокси расшифровывает сам: на CONNECT он отвечает браузеру TLS с сертификатом хоста,
+ * подписанным локальным удостоверяющим центром ({@link MitmCertificates}), а браузер запускается
+ * с {@code acceptInsecureCerts}. Дальше запросы идут тем же путём, что и по http://. Если
+ * сертификат создать не удалось или {@code web.proxy.mitm=false}, HTTPS пробрасывается туннелем
+ * без записи.
+ */
+final class CachingProxy {
+
+    // Заголовки соединения, которые не пересылаются между клиентом и сервером
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList(
+            "connection", "proxy-connection", "keep-alive", "transfer-encoding", "te", "trailer",
+            "upgrade", "proxy-authorization", "proxy-authenticate", "host", "content-length", "expect"));
+
+    private static CachingProxy instance;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final HttpCacheStore store;
+    private final Duration maxAge;
+    private final List<String> blockedHosts;
+    private final HttpClient client;
+    private final MitmCertificates certificates;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong tunnels = new AtomicLong();
+    private final AtomicLong intercepted = new AtomicLong();
+
+    private CachingProxy() throws IOException {
+        store = new HttpCacheStore(TestConfig.getCacheDir().resolve("http"));
+        maxAge = Duration.ofHours(TestConfig.getWebProxyMaxAgeHours());
+        blockedHosts = TestConfig.getWebProxyBlockHosts();
+        certificates = TestConfig.isWebProxyMitm()
+                ? new MitmCertificates(TestConfig.getCacheDir().resolve("http").resolve("mitm"))
+                : null;
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .proxy(HttpClient.Builder.NO_PROXY)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "caching-proxy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::acceptLoop);
+    }
+
+    /**
+     * Запускает прокси при первом обращении и возвращает его адрес в виде {@code 127.0.0.1:порт}.
+     */
+    static synchronized String address() {
+        if (instance == null) {
+            try {
+                instance = new CachingProxy();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось запустить кэширующий прокси", e);
+            }
+            System.out.println("Кэширующий прокси запущен: " + instance.hostAndPort()
+                    + ", хранилище " + TestConfig.getCacheDir().resolve("http"));
+        }
+        return instance.hostAndPort();
+    }
+
+    static synchronized void stop() {
+        if (instance == null) {
+            return;
+        }
+        System.out.println("Кэширующий прокси: из кэша=" + instance.hits.get() + " с сервера=" + instance.misses.get()
+                + " заблокировано=" + instance.blocked.get() + " соединений HTTPS расшифровано="
+                + instance.intercepted.get() + " туннелей HTTPS=" + instance.tunnels.get());
+        try {
+            instance.serverSocket.close();
+        } catch (IOException ignored) {
+            // сокет уже закрыт
+        }
+        instance.executor.shutdownNow();
+        instance = null;
+    }
+
+    private String hostAndPort() {
+        return "127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                // сокет закрыт в stop()
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket) {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            String requestLine = readLine(in);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return;
+            }
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 3) {
+                writeStatus(out, 400, "Bad Request");
+                return;
+            }
+            Map<String, String> headers = readHeaders(in);
+            String method = parts[0].toUpperCase(Locale.ROOT);
+            if ("CONNECT".equals(method)) {
+                connect(client, in, out, parts[1]);
+            } else {
+                forward(in, out, method, URI.create(parts[1]), headers);
+            }
+        } catch (IOException | RuntimeException e) {
+            // браузер закрыл соединение или сервер недоступен — на результат теста это не влияет
+        }
+    }
+
+    private void forward(InputStream in, OutputStream out, String method, URI uri, Map<String, String> headers)
+            throws IOException {
+        if (isBlocked(uri.getHost())) {
+            blocked.incrementAndGet();
+            writeStatus(out, 204, "No Content");
+            return;
+        }
+        String url = uri.toString();
+        if ("GET".equals(method)) {
+            HttpCacheStore.Entry cached = store.get(method, url, maxAge);
+            if (cached != null) {
+                hits.incrementAndGet();
+                writeHead(out, cached.status, cached.headers, cached.body.remaining());
+                Channels.newChannel(out).write(cached.body);
+                out.flush();
+                return;
+            }
+        }
+        misses.incrementAndGet();
+
+        byte[] requestBody = new byte[0];
+        String contentLength = headers.get("content-length");
+        if (contentLength != null) {
+            requestBody = in.readNBytes(Integer.parseInt(contentLength.trim()));
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(60))
+                .method(method, requestBody.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(requestBody));
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!HOP_BY_HOP.contains(header.getKey())) {
+                try {
+                    request.header(header.getKey(), header.getValue());
+                } catch (IllegalArgumentException ignored) {
+                    // заголовок запрещён для java.net.http — клиент выставит его сам
+                }
+            }
+        }
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeStatus(out, 504, "Gateway Timeout");
+            return;
+        }
+        List<String[]> responseHeaders = new ArrayList<>();
+        response.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT)) && !name.startsWith(":")) {
+                for (String value : values) {
+                    responseHeaders.add(new String[]{name, value});
+                }
+            }
+        });
+        byte[] body = response.body();
+        if ("GET".equals(method) && response.statusCode() == 200) {
+            store.put(method, url, response.statusCode(), responseHeaders, body);
+        }
+        writeHead(out, response.statusCode(), responseHeaders, body.length);
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * CONNECT: расшифровываем HTTPS, если есть сертификат для хоста, иначе пробрасываем туннелем.
+     */
+    private void connect(Socket client, InputStream in, OutputStream out, String target) throws IOException {
+        int colon = target.lastIndexOf(':');
+        String host = colon > 0 ? target.substring(0, colon) : target;
+        int port = colon > 0 ? Integer.parseInt(target.substring(colon + 1)) : 443;
+        if (isBlocked(host)) {
+            blocked.incrementAndGet();
+            writeStatus(out, 403, "Forbidden");
+            return;
+        }
+        SSLContext context = null;
+        if (certificates != null) {
+            try {
+                context = certificates.context(host);
+            } catch (RuntimeException e) {
+                System.out.println("Прокси: HTTPS к " + host + " идёт туннелем без записи: " + e.getMessage());
+            }
+        }
+        if (context != null) {
+            intercept(client, out, context, host, port);
+        } else {
+            tunnel(client, in, out, host, port);
+        }
+    }
+
+    /**
+     * Завершает TLS браузера на прокси и обрабатывает расшифрованный запрос как обычный.
+     * Ответ закрывает соединение ({@code Connection: close}), поэтому запрос на соединение один.
+     */
+    private void intercept(Socket client, OutputStream out, SSLContext context, String host, int port)
+            throws IOException {
+        intercepted.incrementAndGet();
+        out.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        try (SSLSocket tls = (SSLSocket) context.getSocketFactory()
+                .createSocket(client, host, client.getPort(), false)) {
+            tls.setUseClientMode(false);
+            InputStream tlsIn = new BufferedInputStream(tls.getInputStream());
+            OutputStream tlsOut = tls.getOutputStream();
+            String requestLine = readLine(tlsIn);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return;
+            }
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 3 || !parts[1].startsWith("/")) {
+                writeStatus(tlsOut, 400, "Bad Request");
+                return;
+            }
+            Map<String, String> headers = readHeaders(tlsIn);
+            URI uri = URI.create("https://" + host + (port == 443 ? "" : ":" + port) + parts[1]);
+            forward(tlsIn, tlsOut, parts[0].toUpperCase(Locale.ROOT), uri, headers);
+        }
+    }
+
+    /**
+     * HTTPS без расшифровки: соединяем браузер с сервером напрямую и перекачиваем байты в обе стороны.
+     */
+    private void tunnel(Socket client, InputStream in, OutputStream out, String host, int port) throws IOException {
+        tunnels.incrementAndGet();
+        try (Socket server = new Socket()) {
+            server.connect(new InetSocketAddress(host, port), 30_000);
+            out.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            executor.execute(() -> {
+                try {
+                    server.getInputStream().transferTo(out);
+                } catch (IOException ignored) {
+                    // одна из сторон закрыла соединение
+                } finally {
+                    closeQuietly(client);
+                }
+            });
+            in.transferTo(server.getOutputStream());
+        }
+    }
+
+    private boolean isBlocked(String host) {
+        if (host == null) {
+            return false;
+        }
+        String normalized = host.toLowerCase(Locale.ROOT);
+        for (String blockedHost : blockedHosts) {
+            if (normalized.equals(blockedHost) || normalized.endsWith("." + blockedHost)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeHead(OutputStream out, int status, List<String[]> headers, int contentLength)
+            throws IOException {
+        StringBuilder head = new StringBuilder("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+        for (String[] header : headers) {
+            head.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+        head.append("Content-Length: ").append(contentLength).append("\r\n");
+        head.append("Connection: close\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static void writeStatus(OutputStream out, int status, String reason) throws IOException {
+        out.write(("HTTP/1.1 " + status + " " + reason + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 301:
+                return "Moved Permanently";
+            case 302:
+                return "Found";
+            case 304:
+                return "Not Modified";
+            case 404:
+                return "Not Found";
+            default:
+                return status < 400 ? "OK" : "Error";
+        }
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // уже закрыт
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package web.base;
+
+import common.PersistentProperties;
+import config.TestConfig;
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш путей к драйверам браузеров (chromedriver, geckodriver, msedgedriver).
+ * <p>
+ * WebDriverManager вызывается не чаще одного раза на браузер и версию: в пределах JVM
+ * результат хранится в памяти, между прогонами и параллельными форками — в файле
+ * {@code drivers/resolution.properties} каталога кэша. При попадании в кэш сеть не нужна,
+ * поэтому после первого прогона тесты запускаются и офлайн.
+ */
+final class DriverBinaryResolver {
+
+    private static final Map<String, String> RESOLVED = new ConcurrentHashMap<>();
+
+    private DriverBinaryResolver() {
+    }
+
+    /**
+     * Находит драйвер для браузера и прописывает путь в системное свойство {@code webdriver.*.driver}.
+     */
+    static void setup(String browser) {
+        String key = cacheKey(browser);
+        String path = RESOLVED.computeIfAbsent(key, k -> resolve(browser, k));
+        System.setProperty(driverProperty(browser), path);
+    }
+
+    /**
+     * Удаляет запись из кэша, например если драйвер не подошёл к обновившемуся браузеру.
+     */
+    static void invalidate(String browser) {
+        String key = cacheKey(browser);
+        RESOLVED.remove(key);
+        store().update(properties -> properties.remove(key));
+        System.out.println("Кэш драйверов: запись " + key + " сброшена");
+    }
+
+    private static String resolve(String browser, String key) {
+        PersistentProperties store = store();
+        String cached = store.load().getProperty(key);
+        if (isUsable(cached)) {
+            System.out.println("Кэш драйверов: " + key + " -> " + cached);
+            return cached;
+        }
+        // Под блокировкой, чтобы параллельные форки не скачивали драйвер одновременно
+        return store.update(properties -> {
+            String path = properties.getProperty(key);
+            if (isUsable(path)) {
+                return path;
+            }
+            long start = System.nanoTime();
+            WebDriverManager manager = manager(browser).cachePath(driversDir().toString());
+            String version = TestConfig.getWebBrowserVersion();
+            if (version != null && !version.isBlank()) {
+                manager.browserVersion(version.trim());
+            }
+            manager.setup();
+            path = manager.getDownloadedDriverPath();
+            properties.setProperty(key, path);
+            System.out.println("Кэш драйверов: " + key + " разрешён WebDriverManager за "
+                    + (System.nanoTime() - start) / 1_000_000 + " мс (драйвер "
+                    + manager.getDownloadedDriverVersion() + ")");
+            return path;
+        });
+    }
+
+    private static boolean isUsable(String path) {
+        return path != null && Files.isRegularFile(Paths.get(path));
+    }
+
+    private static String cacheKey(String browser) {
+        String version = TestConfig.getWebBrowserVersion();
+        String versionKey = version == null || version.isBlank() ? "installed" : version.trim();
+        return browser + "." + versionKey + "." + System.getProperty("os.name").replace(' ', '_')
+                + "." + System.getProperty("os.arch");
+    }
+
+    private static WebDriverManager manager(String browser) {
+        switch (browser) {
+            case "firefox":
+                return WebDriverManager.firefoxdriver();
+            case "edge":
+                return WebDriverManager.edgedriver();
+            case "chrome":
+            default:
+                return WebDriverManager.chromedriver();
+        }
+    }
+
+    private static String driverProperty(String browser) {
+        switch (browser) {
+            case "firefox":
+                return "webdriver.gecko.driver";
+            case "edge":
+                return "webdriver.edge.driver";
+            case "chrome":
+            default:
+                return "webdriver.chrome.driver";
+        }
+    }
+
+    private static Path driversDir() {
+        return TestConfig.getCacheDir().resolve("drivers");
+    }
+
+    private static PersistentProperties store() {
+        return new PersistentProperties(driversDir().resolve("resolution.properties"));
+    }
+}
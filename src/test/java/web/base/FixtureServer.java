@@ -0,0 +1,133 @@
+package web.base;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Локальный HTTP-сервер с копиями страниц demoqa.com ({@code src/test/resources/fixtures}).
+ * <p>
+ * Страницы повторяют id и классы, на которые опираются Page Object'ы, поэтому веб-тесты
+ * выполняются без сети и без ошибок 502 удалённого сайта. Сервер поднимается один раз на прогон
+ * на свободном порту 127.0.0.1, страницы отдаются из памяти; несколько прогонов на одной машине
+ * не мешают друг другу.
+ */
+public final class FixtureServer {
+
+    private static final String RESOURCE_DIR = "fixtures/";
+
+    // Путь запроса -> ресурс; всё остальное отдаётся по имени файла или 404
+    private static final Map<String, String> ROUTES = new HashMap<>();
+
+    static {
+        ROUTES.put("/", "index.html");
+        ROUTES.put("/elements", "elements.html");
+        ROUTES.put("/forms", "forms.html");
+        ROUTES.put("/text-box", "text-box.html");
+        ROUTES.put("/checkbox", "checkbox.html");
+    }
+
+    private static FixtureServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, byte[]> pages = new HashMap<>();
+
+    private FixtureServer() throws IOException {
+        for (String resource : ROUTES.values()) {
+            pages.put(resource, readResource(resource));
+        }
+        pages.put("fixtures.css", readResource("fixtures.css"));
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "fixture-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Запускает сервер при первом обращении и возвращает его адрес (без завершающего слэша).
+     */
+    public static synchronized String baseUrl() {
+        if (instance == null) {
+            try {
+                instance = new FixtureServer();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось запустить локальный сервер страниц demoqa", e);
+            }
+            System.out.println("Локальный сервер страниц demoqa запущен: " + instance.address());
+        }
+        return instance.address();
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.server.stop(0);
+            instance.executor.shutdownNow();
+            instance = null;
+        }
+    }
+
+    private String address() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String resource = ROUTES.getOrDefault(path, path.substring(1));
+            byte[] body = pages.get(resource);
+            int status = 200;
+            if (body == null) {
+                status = 404;
+                resource = "404.txt";
+                body = ("Not Found: " + path).getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType(resource));
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(status, head ? -1 : body.length);
+            if (!head) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String contentType(String resource) {
+        if (resource.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        }
+        return resource.endsWith(".html") ? "text/html; charset=utf-8" : "text/plain; charset=utf-8";
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream in = FixtureServer.class.getClassLoader().getResourceAsStream(RESOURCE_DIR + name)) {
+            if (in == null) {
+                throw new IOException("Не найдена страница " + RESOURCE_DIR + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
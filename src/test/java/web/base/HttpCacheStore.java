@@ -0,0 +1,142 @@
+package web.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Дисковое хранилище HTTP-ответов для {@link CachingProxy}.
+ * <p>
+ * Тела ответов хранятся по SHA-256 содержимого ({@code blobs/ab/abcdef...}), поэтому одинаковые
+ * скрипты и шрифты с разных адресов занимают место один раз. Для каждого запроса хранится
+ * небольшой индексный файл со статусом, заголовками и ссылкой на тело. Все файлы пишутся через
+ * временный файл и атомарное переименование, а тела читаются через отображение в память.
+ */
+final class HttpCacheStore {
+
+    private final Path indexDir;
+    private final Path blobDir;
+
+    HttpCacheStore(Path dir) {
+        this.indexDir = dir.resolve("index");
+        this.blobDir = dir.resolve("blobs");
+    }
+
+    /**
+     * Сохранённый ответ или null, если его нет или он старше {@code maxAge}.
+     */
+    Entry get(String method, String url, Duration maxAge) {
+        Path indexFile = indexFile(method, url);
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        Properties index = new Properties();
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            index.load(in);
+            long storedAt = Long.parseLong(index.getProperty("storedAt", "0"));
+            if (System.currentTimeMillis() - storedAt > maxAge.toMillis()) {
+                return null;
+            }
+            Path blob = blobFile(index.getProperty("body", ""));
+            if (!Files.isRegularFile(blob)) {
+                return null;
+            }
+            MappedByteBuffer body;
+            try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+                body = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            List<String[]> headers = new ArrayList<>();
+            for (int i = 0; index.containsKey("header." + i); i++) {
+                String header = index.getProperty("header." + i);
+                int colon = header.indexOf(':');
+                headers.add(new String[]{header.substring(0, colon), header.substring(colon + 1)});
+            }
+            return new Entry(Integer.parseInt(index.getProperty("status")), headers, body);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Повреждённая запись кэша " + indexFile + " пропущена: " + e.getMessage());
+            return null;
+        }
+    }
+
+    void put(String method, String url, int status, List<String[]> headers, byte[] body) {
+        try {
+            String bodyHash = sha256(body);
+            Path blob = blobFile(bodyHash);
+            if (!Files.isRegularFile(blob)) {
+                writeAtomically(blob, body);
+            }
+            Properties index = new Properties();
+            index.setProperty("url", url);
+            index.setProperty("status", String.valueOf(status));
+            index.setProperty("storedAt", String.valueOf(System.currentTimeMillis()));
+            index.setProperty("body", bodyHash);
+            for (int i = 0; i < headers.size(); i++) {
+                index.setProperty("header." + i, headers.get(i)[0] + ":" + headers.get(i)[1]);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            index.store(out, null);
+            writeAtomically(indexFile(method, url), out.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить ответ " + url + " в кэш", e);
+        }
+    }
+
+    private Path indexFile(String method, String url) {
+        String hash = sha256((method + " " + url).getBytes(StandardCharsets.UTF_8));
+        return indexDir.resolve(hash.substring(0, 2)).resolve(hash + ".properties");
+    }
+
+    private Path blobFile(String hash) {
+        return blobDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            out.write(content);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    static final class Entry {
+
+        final int status;
+        final List<String[]> headers;
+        final MappedByteBuffer body;
+
+        private Entry(int status, List<String[]> headers, MappedByteBuffer body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+}
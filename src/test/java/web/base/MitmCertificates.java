@@ -0,0 +1,175 @@
+package web.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Сертификаты, которыми {@link CachingProxy} представляется браузеру вместо HTTPS-серверов.
+ * <p>
+ * Один раз создаётся локальный удостоверяющий центр ({@code ca.p12}), и для каждого хоста —
+ * ключ с сертификатом, подписанным этим центром ({@code hosts/<хост>.p12}). Всё генерирует
+ * {@code keytool} из JDK и хранит в {@code http/mitm} каталога кэша, поэтому следующие прогоны
+ * сертификаты не создают. Браузеру центр не известен, он принимает сертификаты благодаря
+ * capability {@code acceptInsecureCerts}. Хранилища защищены общим паролем: это тестовый центр,
+ * которому никто, кроме браузера под тестом, не доверяет.
+ */
+final class MitmCertificates {
+
+    private static final String PASSWORD = "ui-auto-tests";
+    private static final long KEYTOOL_TIMEOUT_SECONDS = 60;
+
+    private final Path dir;
+    private final Map<String, SSLContext> contexts = new ConcurrentHashMap<>();
+
+    MitmCertificates(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * TLS-контекст сервера с сертификатом для {@code host}; сертификат создаётся при первом обращении.
+     */
+    SSLContext context(String host) {
+        String normalized = host.toLowerCase(Locale.ROOT);
+        return contexts.computeIfAbsent(normalized, this::load);
+    }
+
+    private SSLContext load(String host) {
+        try {
+            Path keyStore = hostKeyStore(host);
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            try (InputStream in = Files.newInputStream(keyStore)) {
+                store.load(in, PASSWORD.toCharArray());
+            }
+            KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keys.init(store, PASSWORD.toCharArray());
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keys.getKeyManagers(), null, null);
+            return context;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось подготовить сертификат для " + host, e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось подготовить сертификат для " + host, e);
+        }
+    }
+
+    private Path hostKeyStore(String host) throws IOException {
+        Path hosts = dir.resolve("hosts");
+        Path keyStore = hosts.resolve(host.replaceAll("[^a-z0-9.-]", "_") + ".p12");
+        if (Files.isRegularFile(keyStore)) {
+            return keyStore;
+        }
+        Path ca = ensureCa();
+        Files.createDirectories(hosts);
+        // Собираем во временном каталоге: параллельный прогон не увидит недописанное хранилище
+        Path work = Files.createTempDirectory(hosts, "tmp");
+        try {
+            Path store = work.resolve("host.p12");
+            Path request = work.resolve("host.csr");
+            Path certificate = work.resolve("host.crt");
+            String san = host.matches("[0-9.]+|.*:.*") ? "ip:" + host : "dns:" + host;
+            keytool("-genkeypair", "-alias", "host", "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=" + host,
+                    "-validity", "825", "-storetype", "PKCS12", "-keystore", store.toString());
+            keytool("-certreq", "-alias", "host", "-keystore", store.toString(), "-file", request.toString());
+            keytool("-gencert", "-alias", "ca", "-keystore", ca.toString(), "-infile", request.toString(),
+                    "-outfile", certificate.toString(), "-validity", "825", "-rfc",
+                    "-ext", "san=" + san, "-ext", "eku=serverAuth");
+            // Ответ центра импортируется только поверх его собственного сертификата
+            keytool("-importcert", "-noprompt", "-alias", "ca", "-file", dir.resolve("ca.crt").toString(),
+                    "-keystore", store.toString());
+            keytool("-importcert", "-noprompt", "-alias", "host", "-file", certificate.toString(),
+                    "-keystore", store.toString());
+            Files.move(store, keyStore, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Прокси: создан сертификат для " + host);
+            return keyStore;
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    /**
+     * Хранилище удостоверяющего центра; создаётся один раз под файловой блокировкой, чтобы шарды,
+     * запущенные одновременно, не создали разные центры.
+     */
+    private synchronized Path ensureCa() throws IOException {
+        Path ca = dir.resolve("ca.p12");
+        Path caCertificate = dir.resolve("ca.crt");
+        if (Files.isRegularFile(ca) && Files.isRegularFile(caCertificate)) {
+            return ca;
+        }
+        Files.createDirectories(dir);
+        try (FileChannel channel = FileChannel.open(dir.resolve("ca.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                if (Files.isRegularFile(ca) && Files.isRegularFile(caCertificate)) {
+                    return ca;
+                }
+                Files.deleteIfExists(ca);
+                keytool("-genkeypair", "-alias", "ca", "-keyalg", "RSA", "-keysize", "2048",
+                        "-dname", "CN=ui-auto-tests proxy CA", "-ext", "bc:c", "-validity", "3650",
+                        "-storetype", "PKCS12", "-keystore", ca.toString());
+                keytool("-exportcert", "-rfc", "-alias", "ca", "-keystore", ca.toString(),
+                        "-file", caCertificate.toString());
+                System.out.println("Прокси: создан локальный удостоверяющий центр " + ca);
+            } finally {
+                lock.release();
+            }
+        }
+        return ca;
+    }
+
+    private static void keytool(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString());
+        command.addAll(Arrays.asList(args));
+        command.addAll(Arrays.asList("-storepass", PASSWORD, "-keypass", PASSWORD));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            byte[] output = process.getInputStream().readAllBytes();
+            if (!process.waitFor(KEYTOOL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("keytool " + args[0] + " не завершился за "
+                        + KEYTOOL_TIMEOUT_SECONDS + " с");
+            }
+            if (process.exitValue() != 0) {
+                throw new IllegalStateException("keytool " + args[0] + " завершился с кодом " + process.exitValue()
+                        + ": " + new String(output, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить keytool", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание keytool", e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException ignored) {
+            // временный каталог останется до следующей очистки кэша
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package web.base;
+
+import common.StepTimeline;
+import config.TestConfig;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.Proxy;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.FirefoxProfile;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.remote.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Создание и первичная настройка браузера, указанного в конфигурации.
+ * <p>
+ * В профиле {@code fast} браузер запускается headless с фиксированным размером окна,
+ * без расширений и фоновых сервисов, с опциональной блокировкой картинок и шрифтов.
+ * Время запуска и потребление памяти браузерами пишутся в лог.
+ */
+final class WebDriverFactory {
+
+    private static final Path PROFILE_COPIES_DIR = Paths.get("target", "browser-profiles");
+
+    private WebDriverFactory() {
+    }
+
+    static WebDriver create() {
+        String browser = TestConfig.getWebBrowser().toLowerCase();
+        boolean fast = TestConfig.isWebFastProfile();
+        Dimension windowSize = parseWindowSize(TestConfig.getWebWindowSize());
+        DriverBinaryResolver.setup(browser);
+
+        WebDriver driver;
+        long start = System.nanoTime();
+        try {
+            driver = startBrowser(browser, fast, windowSize);
+        } catch (SessionNotCreatedException e) {
+            // Скорее всего браузер обновился, а закэшированный драйвер остался от старой версии
+            DriverBinaryResolver.invalidate(browser);
+            DriverBinaryResolver.setup(browser);
+            start = System.nanoTime();
+            driver = startBrowser(browser, fast, windowSize);
+        }
+        long startupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if (fast) {
+            // headless-окно не разворачивается, поэтому задаём размер явно
+            driver.manage().window().setSize(windowSize);
+        } else {
+            driver.manage().window().maximize();
+        }
+        // Устанавливаем таймауты для предотвращения зависаний
+        driver.manage().timeouts().pageLoadTimeout(60, TimeUnit.SECONDS);
+        driver.manage().timeouts().setScriptTimeout(30, TimeUnit.SECONDS);
+        driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWaitSeconds(), TimeUnit.SECONDS);
+
+        System.out.println("Браузер " + browser + " (профиль " + TestConfig.getWebProfile() + ") запущен за "
+                + startupMs + " мс; " + BrowserProcessStats.describe());
+        return driver;
+    }
+
+    /**
+     * Все команды драйвера (включая команды элементов) проходят через {@code execute},
+     * поэтому длительность каждой из них записывается в {@link StepTimeline}.
+     */
+    private static WebDriver startBrowser(String browser, boolean fast, Dimension windowSize) {
+        switch (browser) {
+            case "firefox":
+                return new FirefoxDriver(withProxy(firefoxOptions(fast, windowSize))) {
+                    @Override
+                    protected Response execute(String command, Map<String, ?> parameters) {
+                        return StepTimeline.command(command, () -> super.execute(command, parameters));
+                    }
+                };
+            case "edge":
+                return new EdgeDriver(withProxy(edgeOptions(fast, windowSize))) {
+                    @Override
+                    protected Response execute(String command, Map<String, ?> parameters) {
+                        return StepTimeline.command(command, () -> super.execute(command, parameters));
+                    }
+                };
+            case "chrome":
+            default:
+                return new ChromeDriver(withProxy(chromeOptions(fast, windowSize))) {
+                    @Override
+                    protected Response execute(String command, Map<String, ?> parameters) {
+                        return StepTimeline.command(command, () -> super.execute(command, parameters));
+                    }
+                };
+        }
+    }
+
+    /**
+     * Направляет HTTP и HTTPS браузера через {@link CachingProxy}, если он включён ({@code web.proxy}).
+     * Локальные адреса (сервер страниц) браузеры запрашивают напрямую. Сертификаты, которыми прокси
+     * подменяет HTTPS-серверы, браузер принимает по {@code acceptInsecureCerts}.
+     */
+    private static <T extends MutableCapabilities> T withProxy(T options) {
+        if (TestConfig.isWebProxy()) {
+            String address = CachingProxy.address();
+            Proxy proxy = new Proxy();
+            proxy.setHttpProxy(address);
+            proxy.setSslProxy(address);
+            options.setCapability(CapabilityType.PROXY, proxy);
+            if (TestConfig.isWebProxyMitm()) {
+                options.setCapability(CapabilityType.ACCEPT_INSECURE_CERTS, true);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Аргументы Chromium, общие для Chrome и Edge.
+     */
+    private static List<String> chromiumArguments(boolean fast, Dimension windowSize) {
+        List<String> args = new ArrayList<>();
+        if (TestConfig.isWebHeadless()) {
+            args.add("--headless=new");
+        }
+        if (!fast) {
+            return args;
+        }
+        args.add("--window-size=" + windowSize.getWidth() + "," + windowSize.getHeight());
+        args.add("--disable-extensions");
+        args.add("--disable-dev-shm-usage");
+        args.add("--disable-gpu");
+        args.add("--disable-background-networking");
+        args.add("--disable-component-update");
+        args.add("--disable-default-apps");
+        args.add("--disable-sync");
+        args.add("--no-first-run");
+        args.add("--no-default-browser-check");
+        args.add("--mute-audio");
+        if (TestConfig.isWebBlockImages()) {
+            args.add("--blink-settings=imagesEnabled=false");
+        }
+        if (TestConfig.isWebBlockFonts()) {
+            args.add("--disable-remote-fonts");
+        }
+        Path userDataDir = copyUserDataTemplate();
+        if (userDataDir != null) {
+            args.add("--user-data-dir=" + userDataDir.toAbsolutePath());
+        }
+        return args;
+    }
+
+    private static ChromeOptions chromeOptions(boolean fast, Dimension windowSize) {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments(chromiumArguments(fast, windowSize));
+        if (fast && TestConfig.isWebBlockImages()) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            options.setExperimentalOption("prefs", prefs);
+        }
+        return options;
+    }
+
+    /**
+     * В Selenium 3 у EdgeOptions нет аргументов запуска, поэтому для Chromium-версии Edge
+     * передаём их напрямую в capability {@code ms:edgeOptions}.
+     */
+    private static EdgeOptions edgeOptions(boolean fast, Dimension windowSize) {
+        EdgeOptions options = new EdgeOptions();
+        Map<String, Object> edgeOptions = new HashMap<>();
+        edgeOptions.put("args", chromiumArguments(fast, windowSize));
+        options.setCapability("ms:edgeOptions", edgeOptions);
+        return options;
+    }
+
+    private static FirefoxOptions firefoxOptions(boolean fast, Dimension windowSize) {
+        FirefoxOptions options = new FirefoxOptions();
+        options.setHeadless(TestConfig.isWebHeadless());
+        if (!fast) {
+            return options;
+        }
+        options.addArguments("-width=" + windowSize.getWidth(), "-height=" + windowSize.getHeight());
+
+        Path template = userDataTemplate();
+        FirefoxProfile profile = template != null ? new FirefoxProfile(template.toFile()) : new FirefoxProfile();
+        profile.setPreference("extensions.update.enabled", false);
+        profile.setPreference("app.update.enabled", false);
+        profile.setPreference("browser.shell.checkDefaultBrowser", false);
+        profile.setPreference("datareporting.healthreport.uploadEnabled", false);
+        profile.setPreference("toolkit.telemetry.enabled", false);
+        if (TestConfig.isWebBlockImages()) {
+            profile.setPreference("permissions.default.image", 2);
+        }
+        if (TestConfig.isWebBlockFonts()) {
+            profile.setPreference("gfx.downloadable_fonts.enabled", false);
+        }
+        options.setProfile(profile);
+        return options;
+    }
+
+    private static Dimension parseWindowSize(String value) {
+        String[] parts = value.toLowerCase().split("[x,]");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Неверный формат web.windowSize (ожидается 1920x1080): " + value);
+        }
+        return new Dimension(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+
+    private static Path userDataTemplate() {
+        String template = TestConfig.getWebUserDataTemplate();
+        if (template == null || template.isBlank()) {
+            return null;
+        }
+        Path path = Paths.get(template.trim());
+        if (!Files.isDirectory(path)) {
+            System.out.println("Шаблон профиля браузера не найден и не будет использован: " + path.toAbsolutePath());
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Копирует шаблон профиля в отдельный каталог: параллельные браузеры не могут делить один профиль.
+     */
+    private static Path copyUserDataTemplate() {
+        Path template = userDataTemplate();
+        if (template == null) {
+            return null;
+        }
+        try {
+            Files.createDirectories(PROFILE_COPIES_DIR);
+            Path target = Files.createTempDirectory(PROFILE_COPIES_DIR, "profile-");
+            try (Stream<Path> files = Files.walk(template)) {
+                for (Path source : (Iterable<Path>) files::iterator) {
+                    Path destination = target.resolve(template.relativize(source).toString());
+                    if (Files.isDirectory(source)) {
+                        Files.createDirectories(destination);
+                    } else {
+                        Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось скопировать шаблон профиля " + template, e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package web.base;
+
+import config.TestConfig;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потокобезопасный пул браузеров для параллельного запуска веб-тестов.
+ * <p>
+ * Поток TestNG арендует браузер перед тестом и возвращает его после теста.
+ * Браузер не закрывается: между тестами очищаются cookies и storage,
+ * а сам процесс переиспользуется следующим тестом (по возможности тем же потоком).
+ * Число одновременно открытых браузеров ограничено {@link TestConfig#getWebPoolSize()}.
+ * <p>
+ * Cookies очищаются только для сайта, открытого в конце теста: WebDriver удаляет cookies лишь
+ * текущего домена. Тесты работают с одним сайтом ({@code web.baseUrl}); тест, уходящий на другие
+ * домены, должен сам очистить их cookies до возврата браузера в пул.
+ */
+public final class WebDriverPool {
+
+    private static final WebDriverPool INSTANCE = new WebDriverPool(TestConfig.getWebPoolSize());
+
+    private static final long ACQUIRE_TIMEOUT_MINUTES = 5;
+    // Как часто ожидающий поток проверяет, не освободилось ли место после закрытия браузера
+    private static final long IDLE_POLL_MILLIS = 500;
+
+    private final int maxSize;
+    private final Semaphore capacity;
+    private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<>();
+    private final List<WebDriver> all = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<WebDriver> leased = new ThreadLocal<>();
+    // Последний браузер потока: при следующей аренде поток получает его же
+    private final ThreadLocal<WebDriver> lastUsed = new ThreadLocal<>();
+
+    private WebDriverPool(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        this.capacity = new Semaphore(this.maxSize);
+    }
+
+    public static WebDriverPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Выдаёт текущему потоку браузер: свой прежний, любой свободный или новый,
+     * если лимит пула ещё не исчерпан. Иначе ждёт, пока другой поток вернёт браузер.
+     */
+    public WebDriver acquire() {
+        WebDriver driver = leased.get();
+        if (driver != null) {
+            return driver;
+        }
+
+        WebDriver previous = lastUsed.get();
+        if (previous != null && idle.remove(previous)) {
+            driver = previous;
+        } else {
+            driver = idle.poll();
+        }
+
+        if (driver == null) {
+            driver = capacity.tryAcquire() ? create() : awaitIdle();
+        }
+
+        leased.set(driver);
+        lastUsed.set(driver);
+        return driver;
+    }
+
+    /**
+     * Браузер, арендованный текущим потоком, или {@code null}.
+     */
+    public WebDriver current() {
+        return leased.get();
+    }
+
+    /**
+     * Возвращает браузер текущего потока в пул, предварительно очистив его состояние.
+     * Если браузер перестал отвечать, он закрывается и освобождает место в пуле.
+     */
+    public void release() {
+        WebDriver driver = leased.get();
+        if (driver == null) {
+            return;
+        }
+        leased.remove();
+
+        try {
+            resetState(driver);
+            idle.offer(driver);
+        } catch (WebDriverException e) {
+            System.out.println("Пул браузеров: браузер не отвечает и будет закрыт: " + e.getMessage());
+            discard(driver);
+        }
+    }
+
+    /**
+     * Закрывает все браузеры пула (вызывается в конце прогона).
+     */
+    public void quitAll() {
+        for (WebDriver driver : all) {
+            discard(driver);
+        }
+        idle.clear();
+    }
+
+    /**
+     * Запускает новый браузер; место в пуле ({@link #capacity}) уже занято вызывающим.
+     */
+    private WebDriver create() {
+        WebDriver driver;
+        try {
+            driver = WebDriverFactory.create();
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        all.add(driver);
+        System.out.println("Пул браузеров: запущен браузер " + all.size() + "/" + maxSize);
+        return driver;
+    }
+
+    /**
+     * Ждёт свободный браузер. Закрытый браузер в {@link #idle} не возвращается, а только освобождает
+     * место в пуле, поэтому ожидание идёт короткими интервалами с проверкой, не освободилось ли место.
+     */
+    private WebDriver awaitIdle() {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(ACQUIRE_TIMEOUT_MINUTES);
+        try {
+            while (System.nanoTime() < deadline) {
+                WebDriver driver = idle.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (driver != null) {
+                    return driver;
+                }
+                if (capacity.tryAcquire()) {
+                    return create();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание браузера из пула прервано", e);
+        }
+        throw new IllegalStateException("Нет свободного браузера в пуле за " + ACQUIRE_TIMEOUT_MINUTES
+                + " мин. Увеличьте web.pool.size или уменьшите thread-count в testng.xml");
+    }
+
+    private void discard(WebDriver driver) {
+        if (all.remove(driver)) {
+            capacity.release();
+            try {
+                driver.quit();
+            } catch (WebDriverException ignored) {
+                // процесс браузера уже мог завершиться
+            }
+        }
+    }
+
+    /**
+     * Очистка вместо перезапуска браузера: storage текущего сайта, cookies и пустая вкладка.
+     * Cookies удаляются для домена открытой страницы, поэтому очистка выполняется до ухода с неё;
+     * cookies других доменов, на которых тест побывал раньше, остаются (см. описание класса).
+     */
+    private static void resetState(WebDriver driver) {
+        try {
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); } catch (e) {}"
+                            + "try { window.sessionStorage.clear(); } catch (e) {}");
+        } catch (WebDriverException ignored) {
+            // на about:blank и страницах ошибок storage недоступен
+        }
+        driver.manage().deleteAllCookies();
+        driver.navigate().to("about:blank");
+    }
+}
@@ -0,0 +1,34 @@
+package web.base;
+
+import config.TestConfig;
+
+/**
+ * Адреса страниц тестируемого сайта.
+ * <p>
+ * Все URL строятся от одного базового адреса: локального сервера страниц ({@link FixtureServer}),
+ * если включён {@code web.fixtures}, иначе {@code web.baseUrl}.
+ */
+public final class WebEndpoints {
+
+    private WebEndpoints() {
+    }
+
+    public static String baseUrl() {
+        if (TestConfig.isWebFixtures()) {
+            return FixtureServer.baseUrl();
+        }
+        String baseUrl = TestConfig.getWebBaseUrl();
+        if (baseUrl == null || baseUrl.isBlank()) {
+            throw new IllegalStateException("Не задан web.baseUrl (или WEB_BASE_URL)");
+        }
+        baseUrl = baseUrl.trim();
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * Полный адрес страницы, например {@code url("/elements")}.
+     */
+    public static String url(String path) {
+        return baseUrl() + (path.startsWith("/") ? path : "/" + path);
+    }
+}
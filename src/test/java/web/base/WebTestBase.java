@@ -1,61 +1,80 @@
 package web.base;
 
+import common.FastProbe;
+import common.HasDriver;
 import config.TestConfig;
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.edge.EdgeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.support.ui.WebDriverWait;
-import org.testng.annotations.AfterClass;
-import org.testng.annotations.BeforeClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.BeforeMethod;
 
-import java.time.Duration;
+import java.util.function.Supplier;
 
 /**
  * Базовый класс для веб-тестов.
- * Отвечает за инициализацию и закрытие WebDriver.
+ * Арендует браузер из {@link WebDriverPool} на время каждого теста,
+ * поэтому тесты одного класса можно запускать параллельно (parallel="methods").
  */
-public abstract class WebTestBase {
-
-    protected WebDriver driver;
-    protected WebDriverWait wait;
-
-    @BeforeClass(alwaysRun = true)
-    public void setUpWebDriver() {
-        String browser = TestConfig.getWebBrowser().toLowerCase();
-
-        switch (browser) {
-            case "firefox":
-                WebDriverManager.firefoxdriver().setup();
-                driver = new FirefoxDriver();
-                break;
-            case "edge":
-                WebDriverManager.edgedriver().setup();
-                driver = new EdgeDriver();
-                break;
-            case "chrome":
-            default:
-                WebDriverManager.chromedriver().setup();
-                driver = new ChromeDriver();
-                break;
-        }
+public abstract class WebTestBase implements HasDriver {
+
+    private static final WebDriverPool POOL = WebDriverPool.getInstance();
+
+    private final ThreadLocal<WebDriverWait> wait = new ThreadLocal<>();
+
+    @BeforeMethod(alwaysRun = true)
+    public void acquireWebDriver() {
+        WebDriver driver = POOL.acquire();
+        wait.set(new WebDriverWait(driver, TestConfig.getExplicitWaitSeconds()));
+        // Не открываем страницу здесь - каждый тест сам открывает нужную страницу
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void releaseWebDriver() {
+        wait.remove();
+        POOL.release();
+    }
 
-        driver.manage().window().maximize();
-        // Устанавливаем таймауты для предотвращения зависаний
-        driver.manage().timeouts().pageLoadTimeout(60, java.util.concurrent.TimeUnit.SECONDS);
-        driver.manage().timeouts().setScriptTimeout(30, java.util.concurrent.TimeUnit.SECONDS);
-        driver.manage().timeouts().implicitlyWait(TestConfig.getImplicitWaitSeconds(), java.util.concurrent.TimeUnit.SECONDS);
-        wait = new WebDriverWait(driver, TestConfig.getExplicitWaitSeconds());
-        // Не открываем страницу в setUp - каждый тест сам открывает нужную страницу
+    @AfterSuite(alwaysRun = true)
+    public void tearDownWebDrivers() {
+        POOL.quitAll();
+        FixtureServer.stop();
+        CachingProxy.stop();
     }
 
-    @AfterClass(alwaysRun = true)
-    public void tearDownWebDriver() {
-        if (driver != null) {
-            driver.quit();
+    /**
+     * Браузер, выданный текущему потоку.
+     */
+    protected WebDriver getDriver() {
+        WebDriver driver = POOL.current();
+        if (driver == null) {
+            throw new IllegalStateException("Браузер не арендован: тест вызван вне @BeforeMethod/@AfterMethod");
         }
+        return driver;
     }
-}
 
+    @Override
+    public WebDriver getDriverIfAcquired() {
+        return POOL.current();
+    }
+
+    protected WebDriverWait getWait() {
+        return wait.get();
+    }
 
+    /**
+     * Есть ли элемент на экране прямо сейчас — без неявного ожидания.
+     * Для необязательных элементов (попапы, баннеры), которых обычно нет.
+     */
+    protected boolean isPresent(By locator) {
+        return FastProbe.isPresent(getDriver(), locator);
+    }
+
+    /**
+     * Выполняет несколько проверок подряд с одним переключением неявного ожидания.
+     */
+    protected <T> T probe(Supplier<T> checks) {
+        return FastProbe.probe(getDriver(), checks);
+    }
+}
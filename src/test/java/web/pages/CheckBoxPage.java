@@ -1,11 +1,16 @@
 package web.pages;
 
+import common.StepTimeline;
+import common.XPaths;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Страница Check Box в разделе Elements.
  */
@@ -17,6 +22,8 @@ public class CheckBoxPage {
     private final By expandAllButton = By.cssSelector(".rct-option-expand-all");
     private final By homeCheckbox = By.cssSelector("span.rct-title");
     private final By resultPanel = By.id("result");
+    // Первый span в блоке результата — подпись "You have selected :", далее значения узлов
+    private final By resultValues = By.cssSelector("#result span.text-success:not(:first-child)");
 
     public CheckBoxPage(WebDriver driver) {
         this.driver = driver;
@@ -24,20 +31,48 @@ public class CheckBoxPage {
     }
 
     public void expandAll() {
-        wait.until(ExpectedConditions.elementToBeClickable(expandAllButton));
-        driver.findElement(expandAllButton).click();
+        StepTimeline.step("CheckBoxPage.expandAll", () -> {
+            wait.until(ExpectedConditions.elementToBeClickable(expandAllButton));
+            driver.findElement(expandAllButton).click();
+        });
     }
 
     public void selectHome() {
-        wait.until(ExpectedConditions.presenceOfElementLocated(homeCheckbox));
-        WebElement home = driver.findElement(homeCheckbox);
-        home.click();
+        StepTimeline.step("CheckBoxPage.selectHome", () -> {
+            wait.until(ExpectedConditions.presenceOfElementLocated(homeCheckbox));
+            WebElement home = driver.findElement(homeCheckbox);
+            home.click();
+        });
     }
 
-    public String getResultText() {
-        wait.until(ExpectedConditions.presenceOfElementLocated(resultPanel));
-        return driver.findElement(resultPanel).getText();
+    /**
+     * Отмечает узел дерева по подписи (например, {@code "Desktop"}). Дерево должно быть раскрыто.
+     */
+    public void select(String title) {
+        StepTimeline.step("CheckBoxPage.select", () -> {
+            By node = By.xpath("//span[@class='rct-title' and text()=" + XPaths.literal(title) + "]");
+            wait.until(ExpectedConditions.elementToBeClickable(node)).click();
+        });
     }
-}
 
+    /**
+     * Значения отмеченных узлов из блока результата, например {@code [desktop, notes, commands]}.
+     */
+    public List<String> getSelectedValues() {
+        return StepTimeline.step("CheckBoxPage.getSelectedValues", () -> {
+            wait.until(ExpectedConditions.presenceOfElementLocated(resultPanel));
+            List<String> values = new ArrayList<>();
+            for (WebElement value : driver.findElements(resultValues)) {
+                values.add(value.getText().trim());
+            }
+            return values;
+        });
+    }
 
+    public String getResultText() {
+        return StepTimeline.step("CheckBoxPage.getResultText", () -> {
+            wait.until(ExpectedConditions.presenceOfElementLocated(resultPanel));
+            return driver.findElement(resultPanel).getText();
+        });
+    }
+}
@@ -1,11 +1,15 @@
 package web.pages;
 
+import common.ReadinessWait;
+import common.StepTimeline;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.time.Duration;
+
 /**
  * Раздел Elements на demoqa.com
  */
@@ -24,20 +28,38 @@ public class ElementsPage {
     }
 
     public String getHeaderText() {
-        wait.until(ExpectedConditions.presenceOfElementLocated(header));
-        return driver.findElement(header).getText();
+        return StepTimeline.step("ElementsPage.getHeaderText", () -> {
+            wait.until(ExpectedConditions.presenceOfElementLocated(header));
+            return driver.findElement(header).getText();
+        });
     }
 
     public void openTextBox() {
-        wait.until(ExpectedConditions.elementToBeClickable(textBoxMenuItem));
-        WebElement item = driver.findElement(textBoxMenuItem);
-        item.click();
+        StepTimeline.step("ElementsPage.openTextBox", () -> {
+            wait.until(ExpectedConditions.elementToBeClickable(textBoxMenuItem));
+            WebElement item = driver.findElement(textBoxMenuItem);
+            item.click();
+            awaitPage("/text-box");
+        });
     }
 
     public void openCheckBox() {
-        wait.until(ExpectedConditions.elementToBeClickable(checkBoxMenuItem));
-        WebElement item = driver.findElement(checkBoxMenuItem);
-        item.click();
+        StepTimeline.step("ElementsPage.openCheckBox", () -> {
+            wait.until(ExpectedConditions.elementToBeClickable(checkBoxMenuItem));
+            WebElement item = driver.findElement(checkBoxMenuItem);
+            item.click();
+            awaitPage("/checkbox");
+        });
+    }
+
+    /**
+     * Ждёт перехода по пункту меню: без перехода следующий шаг упал бы по таймауту на чужой странице.
+     */
+    private void awaitPage(String path) {
+        wait.until(ExpectedConditions.urlContains(path));
+        if (!ReadinessWait.forPageReady(driver, Duration.ofSeconds(10))) {
+            System.out.println("Страница " + driver.getCurrentUrl() + " не догрузилась за 10 с, продолжаем");
+        }
     }
 }
 
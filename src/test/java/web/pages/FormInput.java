@@ -0,0 +1,83 @@
+package web.pages;
+
+import common.StepTimeline;
+import config.TestConfig;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Заполнение полей формы по id.
+ * <p>
+ * По умолчанию все значения выставляются одним вызовом {@code executeScript}: через нативный
+ * сеттер {@code value} (его отслеживает React) с событиями {@code input} и {@code change}.
+ * Это один запрос к драйверу на всю форму вместо wait + find + clear + find + sendKeys на каждое
+ * поле. При {@code web.realTyping=true} или через {@link #type} поля заполняются вводом с клавиатуры.
+ */
+public final class FormInput {
+
+    // Возвращает id отсутствующих полей; значения выставляются, только когда найдены все поля
+    private static final String SET_VALUES_SCRIPT =
+            "var values = arguments[0];\n"
+            + "var missing = [];\n"
+            + "for (var id in values) {\n"
+            + "  if (!document.getElementById(id)) { missing.push(id); }\n"
+            + "}\n"
+            + "if (missing.length) { return missing; }\n"
+            + "for (var id in values) {\n"
+            + "  var field = document.getElementById(id);\n"
+            + "  var proto = field instanceof HTMLTextAreaElement ? HTMLTextAreaElement.prototype\n"
+            + "      : field instanceof HTMLSelectElement ? HTMLSelectElement.prototype : HTMLInputElement.prototype;\n"
+            + "  Object.getOwnPropertyDescriptor(proto, 'value').set.call(field, values[id]);\n"
+            + "  field.dispatchEvent(new Event('input', {bubbles: true}));\n"
+            + "  field.dispatchEvent(new Event('change', {bubbles: true}));\n"
+            + "}\n"
+            + "return missing;";
+
+    private FormInput() {
+    }
+
+    /**
+     * Заполняет поля ({@code id -> значение}) способом, заданным {@code web.realTyping}.
+     */
+    public static void fill(WebDriver driver, Map<String, String> valuesById) {
+        if (TestConfig.isWebRealTyping()) {
+            type(driver, valuesById);
+        } else {
+            setValues(driver, valuesById);
+        }
+    }
+
+    /**
+     * Выставляет все значения одним скриптом. Пока какого-то поля нет на странице, скрипт
+     * повторяется в пределах явного ожидания.
+     */
+    public static void setValues(WebDriver driver, Map<String, String> valuesById) {
+        StepTimeline.step("FormInput.setValues", () -> {
+            JavascriptExecutor js = (JavascriptExecutor) driver;
+            new WebDriverWait(driver, TestConfig.getExplicitWaitSeconds())
+                    .withMessage("Поля формы не появились: " + valuesById.keySet())
+                    .until(d -> ((List<?>) js.executeScript(SET_VALUES_SCRIPT, valuesById)).isEmpty());
+        });
+    }
+
+    /**
+     * Вводит значения с клавиатуры: очистка и {@code sendKeys} для каждого поля по порядку.
+     */
+    public static void type(WebDriver driver, Map<String, String> valuesById) {
+        StepTimeline.step("FormInput.type", () -> {
+            WebDriverWait wait = new WebDriverWait(driver, TestConfig.getExplicitWaitSeconds());
+            for (Map.Entry<String, String> value : valuesById.entrySet()) {
+                WebElement field = wait.until(ExpectedConditions.presenceOfElementLocated(By.id(value.getKey())));
+                field.clear();
+                field.sendKeys(value.getValue());
+            }
+        });
+    }
+}
@@ -1,10 +1,15 @@
 package web.pages;
 
+import common.ReadinessWait;
+import common.StepTimeline;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import web.base.WebEndpoints;
+
+import java.time.Duration;
 
 /**
  * Главная страница demoqa.com
@@ -21,26 +26,36 @@ public class HomePage {
     }
 
     public void openElements() {
-        try {
-            WebElement card = new WebDriverWait(driver, 10)
-                    .until(ExpectedConditions.elementToBeClickable(elementsCard));
-            card.click();
-        } catch (org.openqa.selenium.TimeoutException e) {
-            // Если элемент не найден, переходим по прямой ссылке
-            driver.navigate().to("https://demoqa.com/elements");
-        }
+        StepTimeline.step("HomePage.openElements", () -> {
+            try {
+                WebElement card = new WebDriverWait(driver, 10)
+                        .until(ExpectedConditions.elementToBeClickable(elementsCard));
+                card.click();
+            } catch (org.openqa.selenium.TimeoutException e) {
+                // Если элемент не найден, переходим по прямой ссылке
+                driver.navigate().to(WebEndpoints.url("/elements"));
+            }
+            awaitPage();
+        });
     }
 
     public void openForms() {
-        try {
-            WebElement card = new WebDriverWait(driver, 10)
-                    .until(ExpectedConditions.elementToBeClickable(formsCard));
-            card.click();
-        } catch (org.openqa.selenium.TimeoutException e) {
-            // Если элемент не найден, переходим по прямой ссылке
-            driver.navigate().to("https://demoqa.com/forms");
+        StepTimeline.step("HomePage.openForms", () -> {
+            try {
+                WebElement card = new WebDriverWait(driver, 10)
+                        .until(ExpectedConditions.elementToBeClickable(formsCard));
+                card.click();
+            } catch (org.openqa.selenium.TimeoutException e) {
+                // Если элемент не найден, переходим по прямой ссылке
+                driver.navigate().to(WebEndpoints.url("/forms"));
+            }
+            awaitPage();
+        });
+    }
+
+    private void awaitPage() {
+        if (!ReadinessWait.forPageReady(driver, Duration.ofSeconds(10))) {
+            System.out.println("Страница " + driver.getCurrentUrl() + " не догрузилась за 10 с, продолжаем");
         }
     }
 }
-
-
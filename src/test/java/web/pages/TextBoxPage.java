@@ -1,22 +1,40 @@
 package web.pages;
 
+import common.StepTimeline;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Страница Text Box в разделе Elements.
  */
 public class TextBoxPage {
 
+    // id полей формы — ключи для fillForm(Map)
+    public static final String FULL_NAME = "userName";
+    public static final String EMAIL = "userEmail";
+    public static final String CURRENT_ADDRESS = "currentAddress";
+    public static final String PERMANENT_ADDRESS = "permanentAddress";
+
+    // id строк блока результата по id полей формы; строки имеют вид "<подпись>:<значение>"
+    private static final Map<String, String> OUTPUT_IDS = new LinkedHashMap<>();
+
+    static {
+        OUTPUT_IDS.put(FULL_NAME, "name");
+        OUTPUT_IDS.put(EMAIL, "email");
+        OUTPUT_IDS.put(CURRENT_ADDRESS, "currentAddress");
+        OUTPUT_IDS.put(PERMANENT_ADDRESS, "permanentAddress");
+    }
+
     private final WebDriver driver;
     private final WebDriverWait wait;
 
-    private final By fullNameInput = By.id("userName");
-    private final By emailInput = By.id("userEmail");
-    private final By currentAddressInput = By.id("currentAddress");
-    private final By permanentAddressInput = By.id("permanentAddress");
     private final By submitButton = By.id("submit");
 
     private final By outputBox = By.id("output");
@@ -27,31 +45,56 @@ public class TextBoxPage {
     }
 
     public void fillForm(String name, String email, String currentAddress, String permanentAddress) {
-        wait.until(ExpectedConditions.presenceOfElementLocated(fullNameInput));
-        driver.findElement(fullNameInput).clear();
-        driver.findElement(fullNameInput).sendKeys(name);
-
-        wait.until(ExpectedConditions.presenceOfElementLocated(emailInput));
-        driver.findElement(emailInput).clear();
-        driver.findElement(emailInput).sendKeys(email);
-
-        wait.until(ExpectedConditions.presenceOfElementLocated(currentAddressInput));
-        driver.findElement(currentAddressInput).clear();
-        driver.findElement(currentAddressInput).sendKeys(currentAddress);
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put(FULL_NAME, name);
+        values.put(EMAIL, email);
+        values.put(CURRENT_ADDRESS, currentAddress);
+        values.put(PERMANENT_ADDRESS, permanentAddress);
+        fillForm(values);
+    }
 
-        wait.until(ExpectedConditions.presenceOfElementLocated(permanentAddressInput));
-        driver.findElement(permanentAddressInput).clear();
-        driver.findElement(permanentAddressInput).sendKeys(permanentAddress);
+    /**
+     * Заполняет поля формы ({@code id поля -> значение}) одной командой, см. {@link FormInput}.
+     */
+    public void fillForm(Map<String, String> valuesById) {
+        StepTimeline.step("TextBoxPage.fillForm", () -> {
+            FormInput.fill(driver, valuesById);
+        });
     }
 
     public void submit() {
-        wait.until(ExpectedConditions.elementToBeClickable(submitButton));
-        driver.findElement(submitButton).click();
+        StepTimeline.step("TextBoxPage.submit", () -> {
+            wait.until(ExpectedConditions.elementToBeClickable(submitButton));
+            driver.findElement(submitButton).click();
+        });
     }
 
     public String getOutputText() {
-        wait.until(ExpectedConditions.presenceOfElementLocated(outputBox));
-        return driver.findElement(outputBox).getText();
+        return StepTimeline.step("TextBoxPage.getOutputText", () -> {
+            wait.until(ExpectedConditions.presenceOfElementLocated(outputBox));
+            return driver.findElement(outputBox).getText();
+        });
+    }
+
+    /**
+     * Значения из блока результата по id полей формы (без подписей вроде {@code "Name:"}).
+     * Поля, которых в результате нет (пустые при отправке), в карту не попадают.
+     */
+    public Map<String, String> getOutputValues() {
+        return StepTimeline.step("TextBoxPage.getOutputValues", () -> {
+            WebElement output = wait.until(ExpectedConditions.presenceOfElementLocated(outputBox));
+            Map<String, String> values = new LinkedHashMap<>();
+            OUTPUT_IDS.forEach((field, outputId) -> {
+                // Те же id есть у полей формы, поэтому строка ищется только внутри блока результата
+                List<WebElement> lines = output.findElements(By.id(outputId));
+                if (!lines.isEmpty()) {
+                    String text = lines.get(0).getText();
+                    int colon = text.indexOf(':');
+                    values.put(field, (colon >= 0 ? text.substring(colon + 1) : text).trim());
+                }
+            });
+            return values;
+        });
     }
 }
 
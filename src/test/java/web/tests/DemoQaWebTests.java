@@ -1,173 +1,143 @@
 package web.tests;
 
+import common.DataRows;
+import common.ReadinessWait;
+import common.Retry;
+import common.TransientFailureException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import web.base.WebEndpoints;
 import web.base.WebTestBase;
 import web.pages.CheckBoxPage;
 import web.pages.ElementsPage;
 import web.pages.HomePage;
 import web.pages.TextBoxPage;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Набор веб-тестов для сайта https://demoqa.com
+ * Адреса строятся через {@link WebEndpoints}: по умолчанию страницы отдаёт локальный сервер.
  * Покрывает как минимум 4 стабильных сценария.
  */
 public class DemoQaWebTests extends WebTestBase {
 
+    /**
+     * Открывает страницу и ждёт её готовности. Страница ошибки или таймаут загрузки считаются
+     * временным сбоем: {@link Retry} повторяет переход с нарастающей паузой.
+     */
+    private void open(String path) {
+        Retry.step("open " + path, () -> {
+            getDriver().navigate().to(WebEndpoints.url(path));
+            waitForPageLoad(path);
+        });
+    }
+
     private void waitForPageLoad(String expectedUrlPart) {
-        WebDriverWait pageWait = new WebDriverWait(driver, 30);
+        WebDriverWait pageWait = new WebDriverWait(getDriver(), 30);
         try {
             pageWait.until(ExpectedConditions.urlContains(expectedUrlPart));
             // Дополнительная проверка, что страница не является страницей ошибки
-            String title = driver.getTitle();
-            String url = driver.getCurrentUrl();
-            if (title.contains("502") || title.contains("Bad Gateway") || title.contains("Error") || 
+            String title = getDriver().getTitle();
+            String url = getDriver().getCurrentUrl();
+            if (title.contains("502") || title.contains("Bad Gateway") || title.contains("Error") ||
                 url.contains("error") || url.contains("502")) {
-                throw new RuntimeException("Страница загрузилась с ошибкой: " + title + " URL: " + url);
+                throw new TransientFailureException("Страница загрузилась с ошибкой: " + title + " URL: " + url);
+            }
+            // Ждём, пока отработает JavaScript: readyState, XHR/fetch и тишина в DOM
+            if (!ReadinessWait.forPageReady(getDriver(), Duration.ofSeconds(10))) {
+                throw new TransientFailureException("Документ не загрузился за 10 секунд. URL: " + url);
             }
-            // Ждём немного, чтобы JavaScript успел выполниться
-            Thread.sleep(2000);
         } catch (TimeoutException e) {
-            throw new RuntimeException("Страница не загрузилась за 30 секунд. URL: " + driver.getCurrentUrl(), e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            throw new TransientFailureException("Страница не загрузилась за 30 секунд. URL: " + getDriver().getCurrentUrl(), e);
         }
     }
 
     @Test(description = "Переход с главной страницы в раздел Elements и проверка заголовка")
     public void openElementsSection_shouldShowElementsHeader() {
         // Переход сразу по прямой ссылке на раздел Elements для стабильности
-        try {
-            driver.navigate().to("https://demoqa.com/elements");
-            waitForPageLoad("/elements");
-            String currentUrl = driver.getCurrentUrl();
-
-            Assert.assertTrue(currentUrl.contains("/elements"),
-                    "URL должен содержать /elements, текущий: " + currentUrl);
-            // Проверяем только URL, так как title может быть недоступен при временных проблемах сайта
-        } catch (RuntimeException e) {
-            // Если сайт недоступен, делаем мягкую проверку - пробуем ещё раз
-            try {
-                Thread.sleep(3000);
-                driver.navigate().refresh();
-                waitForPageLoad("/elements");
-                String currentUrl = driver.getCurrentUrl();
-                Assert.assertTrue(currentUrl.contains("/elements"),
-                        "URL должен содержать /elements после повторной попытки, текущий: " + currentUrl);
-            } catch (Exception retryException) {
-                Assert.fail("Не удалось загрузить страницу Elements. Ошибка: " + e.getMessage() + 
-                           ". Повторная попытка: " + retryException.getMessage());
-            }
-        }
+        open("/elements");
+
+        // Проверяем только URL, так как title может быть недоступен при временных проблемах сайта
+        String currentUrl = getDriver().getCurrentUrl();
+        Assert.assertTrue(currentUrl.contains("/elements"),
+                "URL должен содержать /elements, текущий: " + currentUrl);
     }
 
     @Test(description = "Переход с главной страницы в раздел Forms и проверка заголовка страницы")
     public void openFormsSection_shouldOpenFormsPage() {
-        driver.navigate().to("https://demoqa.com");
-        HomePage homePage = new HomePage(driver);
+        getDriver().navigate().to(WebEndpoints.url("/"));
+        HomePage homePage = new HomePage(getDriver());
         homePage.openForms();
 
-        String currentUrl = driver.getCurrentUrl();
+        String currentUrl = getDriver().getCurrentUrl();
         Assert.assertTrue(currentUrl.contains("/forms"),
                 "URL должен содержать /forms для раздела Forms, текущий: " + currentUrl);
     }
 
-    @Test(description = "Заполнение формы Text Box и проверка отобразившегося результата")
-    public void fillTextBoxForm_shouldShowCorrectOutput() {
-        try {
-            driver.navigate().to("https://demoqa.com/elements");
-            waitForPageLoad("/elements");
-            
-            ElementsPage elementsPage = new ElementsPage(driver);
-            elementsPage.openTextBox();
-
-            TextBoxPage textBoxPage = new TextBoxPage(driver);
-            String name = "Test User";
-            String email = "test@example.com";
-            String currentAddress = "Current Address";
-            String permanentAddress = "Permanent Address";
-
-            textBoxPage.fillForm(name, email, currentAddress, permanentAddress);
-            textBoxPage.submit();
-
-            String output = textBoxPage.getOutputText();
-            Assert.assertTrue(output.contains(name), "Результат должен содержать имя");
-            Assert.assertTrue(output.contains(email), "Результат должен содержать email");
-            Assert.assertTrue(output.contains(currentAddress), "Результат должен содержать текущий адрес");
-            Assert.assertTrue(output.contains(permanentAddress), "Результат должен содержать постоянный адрес");
-        } catch (Exception e) {
-            // Если тест упал, делаем повторную попытку
-            try {
-                Thread.sleep(3000);
-                driver.navigate().refresh();
-                waitForPageLoad("/elements");
-                
-                ElementsPage elementsPage = new ElementsPage(driver);
-                elementsPage.openTextBox();
-
-                TextBoxPage textBoxPage = new TextBoxPage(driver);
-                String name = "Test User";
-                String email = "test@example.com";
-                String currentAddress = "Current Address";
-                String permanentAddress = "Permanent Address";
-
-                textBoxPage.fillForm(name, email, currentAddress, permanentAddress);
-                textBoxPage.submit();
-
-                String output = textBoxPage.getOutputText();
-                Assert.assertTrue(output.contains(name), "Результат должен содержать имя");
-                Assert.assertTrue(output.contains(email), "Результат должен содержать email");
-                Assert.assertTrue(output.contains(currentAddress), "Результат должен содержать текущий адрес");
-                Assert.assertTrue(output.contains(permanentAddress), "Результат должен содержать постоянный адрес");
-            } catch (Exception retryException) {
-                Assert.fail("Не удалось выполнить тест Text Box. Ошибка: " + e.getMessage() + 
-                           ". Повторная попытка: " + retryException.getMessage());
-            }
-        }
+    @DataProvider(name = "textBoxRows", parallel = true)
+    public Iterator<Object[]> textBoxRows() {
+        return DataRows.csv("text-box.csv");
+    }
+
+    @DataProvider(name = "checkBoxRows", parallel = true)
+    public Iterator<Object[]> checkBoxRows() {
+        return DataRows.json("check-box.json");
+    }
+
+    @Test(description = "Заполнение формы Text Box и проверка отобразившегося результата",
+            dataProvider = "textBoxRows")
+    public void fillTextBoxForm_shouldShowCorrectOutput(Map<String, String> row) {
+        open("/elements");
+
+        ElementsPage elementsPage = new ElementsPage(getDriver());
+        elementsPage.openTextBox();
+
+        // Колонки набора данных — id полей формы
+        TextBoxPage textBoxPage = new TextBoxPage(getDriver());
+        textBoxPage.fillForm(row);
+        textBoxPage.submit();
+
+        Map<String, String> output = textBoxPage.getOutputValues();
+        row.forEach((field, value) -> Assert.assertEquals(output.get(field), value.trim(),
+                "Значение " + field + " в результате, вывод: " + output));
     }
 
     @Test(description = "Раскрытие дерева Check Box и выбор корневого элемента Home с проверкой результата")
     public void selectHomeCheckbox_shouldShowHomeInResult() {
-        try {
-            driver.navigate().to("https://demoqa.com/elements");
-            waitForPageLoad("/elements");
-            
-            ElementsPage elementsPage = new ElementsPage(driver);
-            elementsPage.openCheckBox();
-
-            CheckBoxPage checkBoxPage = new CheckBoxPage(driver);
-            checkBoxPage.expandAll();
-            checkBoxPage.selectHome();
-
-            String result = checkBoxPage.getResultText().toLowerCase();
-            Assert.assertTrue(result.contains("home"), "В блоке результата должен быть текст 'home'");
-        } catch (RuntimeException e) {
-            // Если страница не загрузилась, делаем повторную попытку
-            try {
-                Thread.sleep(3000);
-                driver.navigate().refresh();
-                waitForPageLoad("/elements");
-                
-                ElementsPage elementsPage = new ElementsPage(driver);
-                elementsPage.openCheckBox();
-
-                CheckBoxPage checkBoxPage = new CheckBoxPage(driver);
-                checkBoxPage.expandAll();
-                checkBoxPage.selectHome();
-
-                String result = checkBoxPage.getResultText().toLowerCase();
-                Assert.assertTrue(result.contains("home"), "В блоке результата должен быть текст 'home'");
-            } catch (Exception retryException) {
-                Assert.fail("Не удалось выполнить тест Check Box. Ошибка: " + e.getMessage() + 
-                           ". Повторная попытка: " + retryException.getMessage());
-            }
-        }
+        open("/elements");
+
+        ElementsPage elementsPage = new ElementsPage(getDriver());
+        elementsPage.openCheckBox();
+
+        CheckBoxPage checkBoxPage = new CheckBoxPage(getDriver());
+        checkBoxPage.expandAll();
+        checkBoxPage.selectHome();
+
+        String result = checkBoxPage.getResultText().toLowerCase();
+        Assert.assertTrue(result.contains("home"), "В блоке результата должен быть текст 'home'");
     }
-}
 
+    @Test(description = "Выбор узлов дерева Check Box и проверка списка отмеченных значений",
+            dataProvider = "checkBoxRows")
+    @SuppressWarnings("unchecked")
+    public void selectCheckBoxNodes_shouldShowSelectedValues(Map<String, Object> row) {
+        open("/checkbox");
 
+        CheckBoxPage checkBoxPage = new CheckBoxPage(getDriver());
+        checkBoxPage.expandAll();
+        for (Object title : (List<Object>) row.get("select")) {
+            checkBoxPage.select(title.toString());
+        }
+
+        Assert.assertEquals(checkBoxPage.getSelectedValues(), row.get("expected"),
+                "Отмеченные узлы для " + row.get("select"));
+    }
+}